@@ -0,0 +1,133 @@
+package jy.refresh;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.Random;
+
+/**
+ * Periodically starts refreshing a {@link JRefreshLayout}. Nothing is scheduled while the
+ * layout is detached, hidden, scrolled off-screen or its window has no focus, and the
+ * interval is doubled after every failed refresh.
+ */
+class AutoRefreshScheduler implements Runnable, ViewTreeObserver.OnScrollChangedListener {
+
+    private static final int MAX_BACKOFF_SHIFT = 5;
+    private static final long BUSY_RETRY_DELAY = 500;
+
+    private final JRefreshLayout mLayout;
+    private final Random mRandom = new Random();
+    private final Rect mVisibleRect = new Rect();
+    private long mInterval;
+    private long mJitter;
+    private long mJitterOffset;
+    private int mFailureCount;
+    private boolean mScheduled;
+    private boolean mWaitingForVisible;
+    private ViewTreeObserver mObserver;
+
+    AutoRefreshScheduler(JRefreshLayout layout) {
+        mLayout = layout;
+    }
+
+    void setInterval(long interval, long jitter) {
+        mInterval = interval;
+        mJitter = jitter;
+        mFailureCount = 0;
+        pickJitter();
+        update();
+    }
+
+    void onRefreshCompleted(boolean succeeded) {
+        if (succeeded) {
+            mFailureCount = 0;
+        } else if (mFailureCount < MAX_BACKOFF_SHIFT) {
+            mFailureCount++;
+        }
+        pickJitter();
+        update();
+    }
+
+    /**
+     * Re-evaluate whether the layout can auto refresh, and (re)schedule or cancel accordingly.
+     */
+    void update() {
+        cancel();
+        if (mInterval <= 0 || !isWindowReady()) {
+            return;
+        }
+        registerScrollListener();
+        long lastRefreshTime = mLayout.getLastRefreshTime();
+        long delay = (mInterval << mFailureCount) + mJitterOffset;
+        if (lastRefreshTime > 0) {
+            delay = Math.max(0, lastRefreshTime + delay - System.currentTimeMillis());
+        }
+        mScheduled = true;
+        mLayout.postDelayed(this, delay);
+    }
+
+    void cancel() {
+        if (mScheduled) {
+            mLayout.removeCallbacks(this);
+            mScheduled = false;
+        }
+        mWaitingForVisible = false;
+        unregisterScrollListener();
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+        if (!mLayout.isIdle()) {
+            if (mLayout.isTouchInProgress()) {
+                //the content is dragged or scrolled, which ends without a state change to reschedule on
+                mScheduled = true;
+                mLayout.postDelayed(this, BUSY_RETRY_DELAY);
+            }
+            //otherwise a refresh or animation is running, its end calls update()
+            return;
+        }
+        if (!mLayout.getGlobalVisibleRect(mVisibleRect)) {
+            //e.g. an off-screen ViewPager page, refresh once it is scrolled back in
+            mWaitingForVisible = true;
+            return;
+        }
+        mLayout.startRefreshing();
+    }
+
+    @Override
+    public void onScrollChanged() {
+        if (mWaitingForVisible && mLayout.getGlobalVisibleRect(mVisibleRect)) {
+            mWaitingForVisible = false;
+            run();
+        }
+    }
+
+    private boolean isWindowReady() {
+        return mLayout.getWindowToken() != null
+            && mLayout.getWindowVisibility() == View.VISIBLE
+            && mLayout.isShown()
+            && mLayout.hasWindowFocus();
+    }
+
+    private void pickJitter() {
+        mJitterOffset = mJitter > 0 ? (long) (mRandom.nextDouble() * mJitter) : 0;
+    }
+
+    private void registerScrollListener() {
+        if (mObserver == null) {
+            mObserver = mLayout.getViewTreeObserver();
+            mObserver.addOnScrollChangedListener(this);
+        }
+    }
+
+    private void unregisterScrollListener() {
+        if (mObserver != null) {
+            if (mObserver.isAlive()) {
+                mObserver.removeOnScrollChangedListener(this);
+            }
+            mObserver = null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package jy.refresh;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * The single background thread of the library, started on first use and kept for the life of the
+ * process. The refresh time store, the second stage preload and the frame decoding all post to it.
+ */
+final class BackgroundThread {
+
+    private static Handler sHandler;
+
+    private BackgroundThread() {
+    }
+
+    static synchronized Handler getHandler() {
+        if (sHandler == null) {
+            HandlerThread thread = new HandlerThread("JRefreshBackground", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            sHandler = new Handler(thread.getLooper());
+        }
+        return sHandler;
+    }
+}
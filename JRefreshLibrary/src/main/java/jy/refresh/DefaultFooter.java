@@ -1,38 +1,80 @@
 package jy.refresh;
 
 import android.content.Context;
+import android.graphics.Color;
 import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.TextView;
 
 /**
  * Created by Jerry on 16/9/7.
  */
-public class DefaultFooter extends LinearLayout implements IFooterHandler {
+public class DefaultFooter extends LinearLayout implements IPullingFooterHandler {
+    private TextView tvStatus;
+    private ImageView ivLoading;
+    private SpinnerDrawable spinner;
+    private boolean isReady;
 
     public DefaultFooter(Context context) {
-        super(context);
+        this(context, null);
     }
 
     public DefaultFooter(Context context, AttributeSet attrs) {
-        super(context, attrs);
+        this(context, attrs, 0);
     }
 
     public DefaultFooter(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        setOrientation(HORIZONTAL);
+        setGravity(Gravity.CENTER);
+        float density = getResources().getDisplayMetrics().density;
+        int padding = (int) (20 * density);
+        setPadding(padding, padding, padding, padding);
+        inflate(context, R.layout.footer_default, this);
+        tvStatus = (TextView) findViewById(R.id.tv_status);
+        ivLoading = (ImageView) findViewById(R.id.iv_loading);
+        spinner = new SpinnerDrawable((int) (24 * density), 2 * density, Color.GRAY);
+        ivLoading.setImageDrawable(spinner);
     }
 
     @Override
-    public void onRefreshReady() {
+    public void onPulling(int percent) {
+        if (percent < 100 && isReady) {
+            isReady = false;
+            tvStatus.setText("上拉加载更多");
+        }
+    }
 
+    @Override
+    public void onRefreshReady() {
+        if (!isReady) {
+            isReady = true;
+            tvStatus.setText("松开加载");
+        }
     }
 
     @Override
     public void onRefreshing() {
-
+        isReady = false;
+        tvStatus.setText("正在加载...");
+        ivLoading.setVisibility(View.VISIBLE);
+        spinner.start();
     }
 
     @Override
     public void onRefreshCompleted() {
+        isReady = false;
+        spinner.stop();
+        ivLoading.setVisibility(View.GONE);
+        tvStatus.setText("上拉加载更多");
+    }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        spinner.stop();
+        super.onDetachedFromWindow();
     }
 }
@@ -1,15 +1,17 @@
 package jy.refresh;
 
 import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Rect;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.animation.LinearInterpolator;
 import android.view.animation.RotateAnimation;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
-import android.widget.ProgressBar;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
@@ -19,12 +21,15 @@ import java.util.Locale;
 /**
  * Created by Jerry on 16/9/7.
  */
-public class DefaultHeader extends RelativeLayout implements IHeaderHandler {
+public class DefaultHeader extends RelativeLayout implements IProgressHeaderHandler, ISecondStageHeaderHandler {
     private TextView tvStatus;
     private TextView tvRefreshTime;
     private TextView tvRefreshing;
     private ImageView ivArrow;
-    private ProgressBar pbLoading;
+    private ImageView ivLoading;
+    private SpinnerDrawable spinner;
+    private final Rect visibleRect = new Rect();
+    private final SpinnerVisibilityListener spinnerVisibilityListener = new SpinnerVisibilityListener();
     private LinearLayout llCenter;
     private long lastRefreshTime;
     private long lastChangeTextTime;
@@ -32,6 +37,9 @@ public class DefaultHeader extends RelativeLayout implements IHeaderHandler {
     private RotateAnimation arrowAnimation;
     private int lastPercent;
     private boolean isPulling;
+    private int lastProgressPercent;
+    private String status = "下拉刷新";
+    private String refreshTimeText;
 
     public DefaultHeader(Context context) {
         this(context, null);
@@ -47,10 +55,17 @@ public class DefaultHeader extends RelativeLayout implements IHeaderHandler {
         tvRefreshTime = (TextView) findViewById(R.id.tv_refresh_time);
         tvStatus = (TextView) findViewById(R.id.tv_status);
         ivArrow = (ImageView) findViewById(R.id.iv_arrow);
-        pbLoading = (ProgressBar) findViewById(R.id.pb_loading);
+        ivLoading = (ImageView) findViewById(R.id.iv_loading);
         llCenter = (LinearLayout) findViewById(R.id.ll_center);
         tvRefreshing = (TextView) findViewById(R.id.tv_refreshing);
         initAnimations();
+        initSpinner();
+    }
+
+    private void initSpinner() {
+        float density = getResources().getDisplayMetrics().density;
+        spinner = new SpinnerDrawable((int) (24 * density), 2 * density, Color.GRAY);
+        ivLoading.setImageDrawable(spinner);
     }
 
     private void initAnimations() {
@@ -70,9 +85,10 @@ public class DefaultHeader extends RelativeLayout implements IHeaderHandler {
         if (percent < 100) {
             isPulling = true;
         }
-        tvStatus.setText("下拉刷新");
-        String refreshTime = getLastRefreshTime();
-        if (!TextUtils.isEmpty(refreshTime)) {
+        setStatus("下拉刷新");
+        String refreshTime = formatLastRefreshTime();
+        if (!TextUtils.isEmpty(refreshTime) && !refreshTime.equals(refreshTimeText)) {
+            refreshTimeText = refreshTime;
             tvRefreshTime.setText("上次刷新：" + refreshTime);
             Log.e("eee", "refreshTime:" + refreshTime);
         }
@@ -84,40 +100,149 @@ public class DefaultHeader extends RelativeLayout implements IHeaderHandler {
 
     @Override
     public void onRefreshReady() {
-        tvStatus.setText("松开刷新");
+        setStatus("松开刷新");
         rotateArrow(false);
     }
 
+    @Override
+    public void onSecondStageReady() {
+        setStatus("松开打开");
+    }
+
+    @Override
+    public void onSecondStageCanceled() {
+        setStatus("松开刷新");
+    }
+
     @Override
     public void onRefreshing() {
         ivArrow.setAlpha(0);
         ivArrow.setVisibility(View.INVISIBLE);
-        pbLoading.setVisibility(View.VISIBLE);
+        ivLoading.setVisibility(View.VISIBLE);
+        spinner.start();
+        updateSpinnerVisibility();
         tvRefreshing.setVisibility(View.VISIBLE);
         llCenter.setVisibility(View.INVISIBLE);
     }
 
+    @Override
+    public void onRefreshProgress(float progress) {
+        int percent = (int) (progress * 100);
+        if (percent == lastProgressPercent) {
+            return;
+        }
+        lastProgressPercent = percent;
+        tvRefreshing.setText("正在刷新..." + percent + "%");
+    }
+
+    @Override
+    public void onPartialRefreshCompleted() {
+
+    }
+
     @Override
     public void onRefreshCompleted() {
         isPulling = false;
-        tvStatus.setText("刷新完成");
+        if (lastProgressPercent != 0) {
+            lastProgressPercent = 0;
+            tvRefreshing.setText("正在刷新...");
+        }
+        setStatus("刷新完成");
         lastRefreshTime = 0;
         ivArrow.setAlpha(255);
-        pbLoading.setVisibility(View.GONE);
+        spinner.stop();
+        ivLoading.setVisibility(View.GONE);
         llCenter.setVisibility(View.VISIBLE);
         tvRefreshing.setVisibility(View.GONE);
         lastRefreshTime = System.currentTimeMillis();
+        refreshTimeText = "刚刚";
         tvRefreshTime.setText("上次刷新：刚刚");
         Log.e("eee", "complete:刚刚");
         rotateArrow(true);
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(spinnerVisibilityListener);
+        getViewTreeObserver().addOnScrollChangedListener(spinnerVisibilityListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnPreDrawListener(spinnerVisibilityListener);
+        getViewTreeObserver().removeOnScrollChangedListener(spinnerVisibilityListener);
+        spinner.setVisible(false, false);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        updateSpinnerVisibility();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateSpinnerVisibility();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateSpinnerVisibility();
+    }
+
+    //pause the spinner while the header is pulled back, in a hidden page or behind a dialog
+    private void updateSpinnerVisibility() {
+        if (spinner == null || !spinner.isRunning()) {
+            return;
+        }
+        boolean visible = getWindowToken() != null
+            && getWindowVisibility() == View.VISIBLE
+            && hasWindowFocus()
+            && ivLoading.isShown()
+            && ivLoading.getGlobalVisibleRect(visibleRect);
+        if (visible != spinner.isVisible()) {
+            spinner.setVisible(visible, false);
+        }
+    }
+
+    private class SpinnerVisibilityListener implements ViewTreeObserver.OnPreDrawListener,
+        ViewTreeObserver.OnScrollChangedListener {
+
+        @Override
+        public boolean onPreDraw() {
+            updateSpinnerVisibility();
+            return true;
+        }
+
+        @Override
+        public void onScrollChanged() {
+            updateSpinnerVisibility();
+        }
+    }
+
+    //every setText of the wrap_content TextViews requests a layout, so skip the unchanged ones
+    private void setStatus(String status) {
+        if (!status.equals(this.status)) {
+            this.status = status;
+            tvStatus.setText(status);
+        }
+    }
+
     private void rotateArrow(boolean isReverse) {
         ivArrow.clearAnimation();
         ivArrow.startAnimation(isReverse ? reverseArrowAnimation : arrowAnimation);
     }
 
-    private String getLastRefreshTime() {
+    public void setLastRefreshTime(long lastRefreshTime) {
+        this.lastRefreshTime = lastRefreshTime;
+        lastChangeTextTime = 0;
+    }
+
+    private String formatLastRefreshTime() {
         long currTime = System.currentTimeMillis();
         if (lastRefreshTime == 0) {
             return "无";
@@ -0,0 +1,65 @@
+package jy.refresh;
+
+/**
+ * Maps drag distances to pull distances: linear up to a distance, then decelerating to a stop at
+ * the max pull distance. The curve is sampled into a table when the distances change, so a drag
+ * event only interpolates between two samples.
+ */
+final class DragCurve {
+
+    static final int SIZE = 64;
+    // smallest rate, the drag distances are divided by it
+    static final float MIN_RATE = .01f;
+
+    // pull distance for evenly spaced drag distances up to mMaxDragDistance
+    private final float[] mSamples = new float[SIZE + 1];
+    private float mScale;
+    private float mRate;
+    // drag distance at which the pull distance reaches mMaxPullDistance
+    private float mMaxDragDistance;
+    private float mMaxPullDistance;
+
+    /**
+     * @param linearDistance   pull distance up to which the pull follows the drag at {@code rate}
+     * @param overPullDistance pull distance beyond {@code linearDistance} over which the pull slows down
+     * @param rate             pull distance per dragged pixel, raised to {@link #MIN_RATE}
+     */
+    void update(int linearDistance, int overPullDistance, float rate) {
+        rate = Math.max(MIN_RATE, rate);
+        mRate = rate;
+        mMaxPullDistance = linearDistance + overPullDistance;
+        float linearDragDistance = linearDistance / rate;
+        float resistDragDistance = 2f * overPullDistance / rate;
+        mMaxDragDistance = linearDragDistance + resistDragDistance;
+        for (int i = 0; i <= SIZE; i++) {
+            float drag = mMaxDragDistance * i / SIZE;
+            if (drag <= linearDragDistance) {
+                mSamples[i] = drag * rate;
+            } else {
+                float over = drag - linearDragDistance;
+                mSamples[i] = linearDistance + rate * over - rate * over * over / (2 * resistDragDistance);
+            }
+        }
+        mScale = mMaxDragDistance > 0 ? SIZE / mMaxDragDistance : 0;
+    }
+
+    float getMaxDragDistance() {
+        return mMaxDragDistance;
+    }
+
+    float getPullDistance(float dragDistance) {
+        if (dragDistance <= 0) {
+            return dragDistance * mRate;
+        }
+        if (dragDistance >= mMaxDragDistance) {
+            return mMaxPullDistance;
+        }
+        float position = dragDistance * mScale;
+        if (position >= SIZE) {
+            //rounding of a drag distance just below the max
+            return mSamples[SIZE];
+        }
+        int index = (int) position;
+        return mSamples[index] + (mSamples[index + 1] - mSamples[index]) * (position - index);
+    }
+}
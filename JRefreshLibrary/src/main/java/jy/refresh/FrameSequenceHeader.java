@@ -0,0 +1,335 @@
+package jy.refresh;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A header playing a sequence of drawable frames: the pull distance selects the frame, and the
+ * frames loop while refreshing. Frames are decoded on a background thread ahead of the pull
+ * position and kept in a size bounded cache whose evicted bitmaps are reused for decoding.
+ */
+public class FrameSequenceHeader extends View implements IHeaderHandler {
+
+    private static final String LOG_TAG = "FrameSequenceHeader";
+
+    private static final int DEFAULT_CACHE_SIZE = 4 * 1024 * 1024;
+
+    private static final int PREFETCH_COUNT = 3;
+
+    private static final int MAX_REUSABLE_BITMAPS = 2;
+
+    private static final int FRAME_DURATION = 50;
+
+    private int[] mFrameResIds = new int[0];
+    private boolean[] mDecoding = new boolean[0];
+    private FrameCache mCache;
+    // bitmaps evicted from the cache, guarded by itself
+    private final List<Bitmap> mReusableBitmaps = new ArrayList<>();
+    private final Handler mMainHandler = new Handler();
+    private Bitmap mCurrentBitmap;
+    private int mCurrentIndex;
+    private int mFrameHeight;
+    private int mGeneration;
+    private boolean mRefreshing;
+
+    public FrameSequenceHeader(Context context) {
+        this(context, null);
+    }
+
+    public FrameSequenceHeader(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FrameSequenceHeader(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mCache = new FrameCache(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param frameResIds drawable resource ids of the frames, in playing order
+     */
+    public void setFrames(int[] frameResIds) {
+        release();
+        mFrameResIds = frameResIds.clone();
+        mDecoding = new boolean[frameResIds.length];
+        mCurrentIndex = 0;
+        mCurrentBitmap = null;
+        prefetch(0);
+    }
+
+    /**
+     * @param maxBytes the maximum bytes of decoded frames kept in memory, raised if needed to fit
+     *                 the shown frame and the prefetched ones
+     */
+    public void setCacheSize(int maxBytes) {
+        mCache.evictAll();
+        mCache = new FrameCache(maxBytes);
+        if (mCurrentBitmap != null) {
+            ensureCacheFits(mCurrentBitmap.getByteCount());
+        }
+    }
+
+    @Override
+    public void onPulling(int percent) {
+        if (mFrameResIds.length == 0) {
+            return;
+        }
+        int index = Math.min(percent, 100) * (mFrameResIds.length - 1) / 100;
+        showFrame(index);
+    }
+
+    @Override
+    public void onRefreshReady() {
+        showFrame(mFrameResIds.length - 1);
+    }
+
+    @Override
+    public void onRefreshing() {
+        mRefreshing = true;
+        mMainHandler.removeCallbacks(mNextFrameRunnable);
+        mMainHandler.postDelayed(mNextFrameRunnable, FRAME_DURATION);
+    }
+
+    @Override
+    public void onRefreshCompleted() {
+        mRefreshing = false;
+        mMainHandler.removeCallbacks(mNextFrameRunnable);
+        //keep the shown frame, drop the others until the next pull
+        release();
+    }
+
+    private final Runnable mNextFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mRefreshing || mFrameResIds.length == 0) {
+                return;
+            }
+            showFrame((mCurrentIndex + 1) % mFrameResIds.length);
+            mMainHandler.postDelayed(this, FRAME_DURATION);
+        }
+    };
+
+    private void showFrame(int index) {
+        if (index < 0 || index >= mFrameResIds.length) {
+            return;
+        }
+        int direction = index >= mCurrentIndex ? 1 : -1;
+        mCurrentIndex = index;
+        Bitmap bitmap = mCache.get(index);
+        if (bitmap != null && bitmap != mCurrentBitmap) {
+            setCurrentBitmap(bitmap);
+        }
+        //while the frame is decoding the previous one stays on screen
+        if (direction > 0 || mRefreshing) {
+            prefetch(index);
+        } else {
+            prefetchBackward(index);
+        }
+    }
+
+    private void prefetch(int index) {
+        int count = mFrameResIds.length;
+        for (int i = 0; i <= PREFETCH_COUNT && i < count; i++) {
+            decode((index + i) % count);
+        }
+    }
+
+    private void prefetchBackward(int index) {
+        for (int i = 0; i <= PREFETCH_COUNT && index - i >= 0; i++) {
+            decode(index - i);
+        }
+    }
+
+    private void decode(final int index) {
+        if (mDecoding[index] || mCache.get(index) != null) {
+            return;
+        }
+        mDecoding[index] = true;
+        final int generation = mGeneration;
+        final int resId = mFrameResIds[index];
+        final Resources resources = getResources();
+        BackgroundThread.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = decodeFrame(resources, resId);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFrameDecoded(generation, index, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onFrameDecoded(int generation, int index, Bitmap bitmap) {
+        if (generation != mGeneration) {
+            //released meanwhile
+            return;
+        }
+        mDecoding[index] = false;
+        if (bitmap == null) {
+            return;
+        }
+        //before caching, so that a frame evicted right away is not reused while on screen
+        if (index == mCurrentIndex || mCurrentBitmap == null) {
+            setCurrentBitmap(bitmap);
+        }
+        ensureCacheFits(bitmap.getByteCount());
+        mCache.put(index, bitmap);
+    }
+
+    /**
+     * Grow the cache if it cannot hold the frame on screen and the prefetched ones, which would
+     * otherwise evict each other before they are shown.
+     */
+    private void ensureCacheFits(int frameBytes) {
+        int minSize = frameBytes * (PREFETCH_COUNT + 1);
+        if (mCache.maxSize() >= minSize) {
+            return;
+        }
+        FrameCache cache = new FrameCache(minSize);
+        for (Map.Entry<Integer, Bitmap> entry : mCache.snapshot().entrySet()) {
+            cache.put(entry.getKey(), entry.getValue());
+        }
+        mCache = cache;
+    }
+
+    //runs on the decode thread
+    private Bitmap decodeFrame(Resources resources, int resId) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inMutable = true;
+        synchronized (mReusableBitmaps) {
+            if (!mReusableBitmaps.isEmpty()) {
+                options.inBitmap = mReusableBitmaps.remove(mReusableBitmaps.size() - 1);
+            }
+        }
+        try {
+            return BitmapFactory.decodeResource(resources, resId, options);
+        } catch (IllegalArgumentException e) {
+            //the reused bitmap does not fit this frame
+            options.inBitmap = null;
+            return BitmapFactory.decodeResource(resources, resId, options);
+        } catch (OutOfMemoryError e) {
+            Log.w(LOG_TAG, "Failed to decode frame", e);
+            return null;
+        }
+    }
+
+    private void setCurrentBitmap(Bitmap bitmap) {
+        mCurrentBitmap = bitmap;
+        if (bitmap.getHeight() != mFrameHeight) {
+            mFrameHeight = bitmap.getHeight();
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    private void recycleBitmap(Bitmap bitmap) {
+        if (bitmap == null || bitmap == mCurrentBitmap || !bitmap.isMutable()) {
+            return;
+        }
+        synchronized (mReusableBitmaps) {
+            if (mReusableBitmaps.size() < MAX_REUSABLE_BITMAPS) {
+                mReusableBitmaps.add(bitmap);
+            }
+        }
+    }
+
+    /**
+     * Drop every decoded frame except the one on screen, and cancel pending decodes.
+     */
+    public void release() {
+        mGeneration++;
+        mCache.evictAll();
+        synchronized (mReusableBitmaps) {
+            mReusableBitmaps.clear();
+        }
+        mDecoding = new boolean[mFrameResIds.length];
+    }
+
+    private final ComponentCallbacks2 mMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_RUNNING_LOW && !mRefreshing) {
+                release();
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            release();
+        }
+    };
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().registerComponentCallbacks(mMemoryCallbacks);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getContext().unregisterComponentCallbacks(mMemoryCallbacks);
+        mRefreshing = false;
+        mMainHandler.removeCallbacks(mNextFrameRunnable);
+        release();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int height = mFrameHeight + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+            resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        Bitmap bitmap = mCurrentBitmap;
+        if (bitmap == null) {
+            return;
+        }
+        int contentWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        float left = getPaddingLeft() + (contentWidth - bitmap.getWidth()) / 2f;
+        canvas.drawBitmap(bitmap, left, getPaddingTop(), null);
+    }
+
+    private class FrameCache extends LruCache<Integer, Bitmap> {
+
+        FrameCache(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected int sizeOf(Integer key, Bitmap value) {
+            return value.getByteCount();
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, Integer key, Bitmap oldValue, Bitmap newValue) {
+            //a frame larger than the whole cache would only be evicted again after decoding into it
+            if (oldValue.getByteCount() <= maxSize()) {
+                recycleBitmap(oldValue);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package jy.refresh;
+
+/**
+ * Optional extension of {@link IHeaderHandler} for headers that show the progress of a refresh
+ * which delivers its results in several parts.
+ */
+public interface IProgressHeaderHandler extends IHeaderHandler {
+
+    /**
+     * @param progress refresh progress in [0, 1]
+     */
+    void onRefreshProgress(float progress);
+
+    /**
+     * Part of the results is shown, the header is collapsed while the rest is loading.
+     */
+    void onPartialRefreshCompleted();
+}
@@ -0,0 +1,13 @@
+package jy.refresh;
+
+/**
+ * Optional extension of {@link IFooterHandler} for footers that follow the pull-up, see
+ * {@link JRefreshLayout#setPullUpEnabled(boolean)}.
+ */
+public interface IPullingFooterHandler extends IFooterHandler {
+
+    /**
+     * @param percent pull-up distance in percent of the trigger distance, 100 once releasing loads more
+     */
+    void onPulling(int percent);
+}
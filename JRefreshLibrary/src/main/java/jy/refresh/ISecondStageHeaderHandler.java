@@ -0,0 +1,18 @@
+package jy.refresh;
+
+/**
+ * Optional extension of {@link IHeaderHandler} for headers that show the second stage of a pull,
+ * see {@link JRefreshLayout#setSecondStageDistance(int)}.
+ */
+public interface ISecondStageHeaderHandler extends IHeaderHandler {
+
+    /**
+     * Pulled beyond the second stage distance, releasing opens the second stage.
+     */
+    void onSecondStageReady();
+
+    /**
+     * Pulled back below the second stage distance, releasing refreshes again.
+     */
+    void onSecondStageCanceled();
+}
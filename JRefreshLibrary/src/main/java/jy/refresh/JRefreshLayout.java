@@ -1,6 +1,16 @@
 package jy.refresh;
 
+import android.app.Activity;
 import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.v4.view.MotionEventCompat;
 import android.support.v4.view.NestedScrollingChild;
 import android.support.v4.view.NestedScrollingChildHelper;
@@ -26,46 +36,111 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
 
     private final String LOG_TAG = "JRefreshLayout";
 
-    private final static int STATE_IDLE = 101;
-    private final static int STATE_PULLING = 102;
-    private final static int STATE_PULL_REFRESH_READY = 103;
-    private final static int STATE_PULL_REFRESHING = 104;
-    private final static int STATE_REFRESH_COMPLETED = 105;
+    public final static int STATE_IDLE = 101;
+    public final static int STATE_PULLING = 102;
+    public final static int STATE_PULL_REFRESH_READY = 103;
+    public final static int STATE_PULL_REFRESHING = 104;
+    public final static int STATE_REFRESH_COMPLETED = 105;
+    public final static int STATE_SECOND_STAGE_READY = 106;
+    public final static int STATE_SECOND_STAGE_OPENED = 107;
+
+    private static final OnStateChangeListener[] NO_STATE_LISTENERS = new OnStateChangeListener[0];
 
     private static final float DECELERATE_INTERPOLATION_FACTOR = 2f;
 
-    private static final float DRAG_RATE = .45f;
+    private static final float DEFAULT_DRAG_RATE = .45f;
+
+    private static final int DEFAULT_ANIMATE_TO_START_DURATION = 200;
 
-    private static final int MIN_REFRESH_TRIGGER_DISTANCE = 100;
+    private static final int DEFAULT_ANIMATE_TO_TRIGGER_DURATION = 200;
 
-    private static final int DIFF_MAX_PULL_DISTANCE_WITH_TRIGGER = 50;
+    private static final int PROGRESS_BAR_HEIGHT_DP = 2;
 
-    private static final int ANIMATE_TO_START_DURATION = 200;
+    private static final int DEFAULT_PROGRESS_BAR_COLOR = 0xFF3F51B5;
 
-    private static final int ANIMATE_TO_TRIGGER_DURATION = 200;
+    private static final int PROGRESS_TRACK_ALPHA = 0x40;
 
     private static final int INVALID_POINTER = -1;
 
+    /**
+     * The header pushes the content down while pulling.
+     */
+    public static final int PULL_MODE_MOVE_CONTENT = 0;
+
+    /**
+     * The header slides over the content, whose bounds never change. Pulling a RecyclerView
+     * (or any other content) then never lays it out or rebinds its items. The header is drawn over
+     * the content, so it needs an opaque background; {@link DefaultHeader} has none by default.
+     */
+    public static final int PULL_MODE_OVERLAY = 1;
+
+    private static final int PULL_DOWN = 1;
+
+    private static final int PULL_UP = -1;
+
     private View mContentView;
     private int mHeaderHeight;
     private View mHeaderView;
     private IHeaderHandler mHeaderHandler;
     private OnRefreshListener mRefreshListener;
+    private View mFooterView;
+    private int mFooterHeight;
+    private IFooterHandler mFooterHandler;
+    private OnLoadMoreListener mLoadMoreListener;
+    private PerformanceMonitor mPerformanceMonitor;
+    // copy on write, so dispatching needs neither a lock nor a copy
+    private OnStateChangeListener[] mStateListeners = NO_STATE_LISTENERS;
+    private boolean mPullUpEnabled;
     private final NestedScrollingParentHelper mNestedScrollingParentHelper;
     private final NestedScrollingChildHelper mNestedScrollingChildHelper;
 
     private int mState = STATE_IDLE;
+    private int mPullMode = PULL_MODE_MOVE_CONTENT;
+    // PULL_DOWN drives the header, PULL_UP the footer; the offset has the same sign
+    private int mPullDirection = PULL_DOWN;
     private int mActivePointerId = INVALID_POINTER;
     private DecelerateInterpolator mDecelerateInterpolator;
     private float mStartMotionY;
     private int mCurrentContentOffsetTop;
     private int mFrom;
+    private Animation.AnimationListener mToStartListener;
     private boolean mIsBeingDragged;
     private boolean mNestedScrollInProgress;
     private int mTouchSlop;
     private int mMaxPullDistance;
     private int mTriggerDistance;
+    private int mMinTriggerDistance;
+    private int mOverPullDistance;
+    private int mMinSecondStageDistance;
+    // 0 when there is no second stage
+    private int mSecondStageDistance;
+    private OnSecondStageListener mSecondStageListener;
+    private boolean mSecondStagePreloaded;
+    private float mDragRate;
+    private int mAnimateToStartDuration;
+    private int mAnimateToTriggerDuration;
+    private float mDensity;
+    // drag distance at which the pull distance reaches mMaxPullDistance
+    private float mMaxDragDistance;
+    private final DragCurve mDragCurve = new DragCurve();
     private int mProgressingAnimationCount;
+    // the offset animation started on the header and not ended yet
+    private Animation mOffsetAnimation;
+    private long mLastRefreshTime;
+    private boolean mLastRefreshSucceeded = true;
+    private boolean mPendingRefreshSucceeded = true;
+    private String mRefreshTimeKey;
+    private boolean mRefreshTimeKeySet;
+    private boolean mRefreshTimeRequested;
+    private final AutoRefreshScheduler mAutoRefreshScheduler;
+    private float mRefreshProgress;
+    private boolean mPartialRefreshCompleted;
+    private final Paint mProgressPaint;
+    private LayerPolicy mLayerPolicy = DEFAULT_LAYER_POLICY;
+    private boolean mInMotion;
+    private boolean mHeaderLayerPromoted;
+    private boolean mContentLayerPromoted;
+    private final int mProgressBarHeight;
     // If nested scrolling is enabled, the total amount that needed to be
     // consumed by this as the nested scrolling parent is used in place of the
     // overscroll determined by MOVE events in the onTouch handler
@@ -84,11 +159,69 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
     public JRefreshLayout(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
         mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+        resolveAttributes(context, attrs, defStyleAttr);
         mDecelerateInterpolator = new DecelerateInterpolator(DECELERATE_INTERPOLATION_FACTOR);
         mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
         mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
         mAnimateToTriggerPosition.setAnimationListener(animationToTriggerListener);
+        mAutoRefreshScheduler = new AutoRefreshScheduler(this);
+        mProgressPaint = new Paint();
+        mProgressPaint.setColor(DEFAULT_PROGRESS_BAR_COLOR);
+        mProgressBarHeight = (int) (PROGRESS_BAR_HEIGHT_DP * getResources().getDisplayMetrics().density + 0.5f);
         setNestedScrollingEnabled(true);
+        //the header is drawn last, see getChildDrawingOrder
+        setChildrenDrawingOrderEnabled(true);
+    }
+
+    private void resolveAttributes(Context context, AttributeSet attrs, int defStyleAttr) {
+        Resources res = getResources();
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.JRefreshLayout, defStyleAttr, 0);
+        mMinTriggerDistance = a.getDimensionPixelSize(R.styleable.JRefreshLayout_jr_triggerDistance,
+            res.getDimensionPixelSize(R.dimen.jr_default_trigger_distance));
+        int maxPullDistance = a.getDimensionPixelSize(R.styleable.JRefreshLayout_jr_maxPullDistance,
+            res.getDimensionPixelSize(R.dimen.jr_default_max_pull_distance));
+        mOverPullDistance = Math.max(0, maxPullDistance - mMinTriggerDistance);
+        mMinSecondStageDistance = a.getDimensionPixelSize(R.styleable.JRefreshLayout_jr_secondStageDistance, 0);
+        mDragRate = Math.max(DragCurve.MIN_RATE, a.getFloat(R.styleable.JRefreshLayout_jr_dragRate, DEFAULT_DRAG_RATE));
+        mAnimateToStartDuration = a.getInt(R.styleable.JRefreshLayout_jr_animateToStartDuration,
+            DEFAULT_ANIMATE_TO_START_DURATION);
+        mAnimateToTriggerDuration = a.getInt(R.styleable.JRefreshLayout_jr_animateToTriggerDuration,
+            DEFAULT_ANIMATE_TO_TRIGGER_DURATION);
+        a.recycle();
+        mDensity = res.getDisplayMetrics().density;
+        updatePullDistances();
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        float density = getResources().getDisplayMetrics().density;
+        if (density != mDensity) {
+            float scale = density / mDensity;
+            mMinTriggerDistance = Math.round(mMinTriggerDistance * scale);
+            mOverPullDistance = Math.round(mOverPullDistance * scale);
+            mMinSecondStageDistance = Math.round(mMinSecondStageDistance * scale);
+            mDensity = density;
+            mTouchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+            updatePullDistances();
+        }
+    }
+
+    //only when the header height or the attributes change, the drag path reads the results
+    private void updatePullDistances() {
+        //both directions share the distances, so the footer is never pulled less than its height either
+        mTriggerDistance = Math.max(Math.max(mHeaderHeight, mFooterHeight), mMinTriggerDistance);
+        //the second stage always lies beyond the trigger distance
+        mSecondStageDistance = mMinSecondStageDistance > 0 ? Math.max(mMinSecondStageDistance, mTriggerDistance + 1) : 0;
+        int linearDistance = Math.max(mTriggerDistance, mSecondStageDistance);
+        mMaxPullDistance = linearDistance + mOverPullDistance;
+        // linear up to the trigger (or second stage) distance, then decelerating to a stop at the max pull distance
+        mDragCurve.update(linearDistance, mOverPullDistance, mDragRate);
+        mMaxDragDistance = mDragCurve.getMaxDragDistance();
+    }
+
+    private float getPullDistance(float dragDistance) {
+        return mDragCurve.getPullDistance(dragDistance);
     }
 
     @Override
@@ -106,6 +239,86 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         super.onFinishInflate();
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        loadLastRefreshTime();
+        mAutoRefreshScheduler.update();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        mAutoRefreshScheduler.update();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        mAutoRefreshScheduler.update();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        //called for ancestors as well, may come before the constructor finished
+        if (mAutoRefreshScheduler != null) {
+            mAutoRefreshScheduler.update();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        //cancelAnimations() may settle on idle, which reschedules
+        cancelAnimations();
+        mAutoRefreshScheduler.cancel();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.state = mState;
+        ss.contentOffsetTop = mCurrentContentOffsetTop;
+        ss.pullDirection = mPullDirection;
+        ss.lastRefreshTime = mLastRefreshTime;
+        ss.partialRefreshCompleted = mPartialRefreshCompleted;
+        ss.refreshProgress = mRefreshProgress;
+        return ss;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        //drop the animation started before restoring, e.g. startRefreshing() in onCreate,
+        //so the listener is not asked to refresh again
+        cancelAnimations();
+        setLastRefreshTime(ss.lastRefreshTime);
+        if (ss.state == STATE_PULL_REFRESHING) {
+            mPullDirection = ss.pullDirection;
+            mCurrentContentOffsetTop = ss.contentOffsetTop;
+            mPartialRefreshCompleted = ss.partialRefreshCompleted;
+            mRefreshProgress = ss.refreshProgress;
+            if (mPullDirection == PULL_UP) {
+                if (mFooterHandler != null) {
+                    mFooterHandler.onRefreshing();
+                }
+            } else if (mHeaderHandler != null) {
+                mHeaderHandler.onRefreshing();
+            }
+            settleState(STATE_PULL_REFRESHING);
+        } else {
+            mCurrentContentOffsetTop = 0;
+            settleState(STATE_IDLE);
+        }
+        requestLayout();
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
@@ -115,14 +328,15 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         if (getChildCount() < 0) {
             return;
         }
-        if (mHeaderView != null) {
-            measureChildren(widthMeasureSpec, heightMeasureSpec);
-            mHeaderHeight = mHeaderView.getMeasuredHeight();
-            mTriggerDistance = Math.max(mHeaderHeight, MIN_REFRESH_TRIGGER_DISTANCE);
-            mMaxPullDistance = mTriggerDistance + DIFF_MAX_PULL_DISTANCE_WITH_TRIGGER;
+        measureChildren(widthMeasureSpec, heightMeasureSpec);
+        int headerHeight = mHeaderView != null ? mHeaderView.getMeasuredHeight() : 0;
+        int footerHeight = mFooterView != null ? mFooterView.getMeasuredHeight() : 0;
+        if (headerHeight != mHeaderHeight || footerHeight != mFooterHeight) {
+            mHeaderHeight = headerHeight;
+            mFooterHeight = footerHeight;
+            updatePullDistances();
         }
         if (mContentView != null) {
-            measureChildren(widthMeasureSpec, heightMeasureSpec);
             log(String.format("onMeasure content, width: %s, height: %s",
                 mContentView.getMeasuredWidth(), mContentView.getMeasuredHeight()));
         }
@@ -133,19 +347,71 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         if (getChildCount() < 0) {
             return;
         }
+        if (mPerformanceMonitor != null) {
+            mPerformanceMonitor.onLayoutPass();
+        }
         int paddingLeft = getPaddingLeft();
         int paddingTop = getPaddingTop();
         if (mHeaderView != null) {
             mHeaderView.layout(getPaddingLeft(), mCurrentContentOffsetTop - mHeaderHeight, paddingLeft + mHeaderView.getMeasuredWidth(), mCurrentContentOffsetTop + 1);
         }
         if (mContentView != null) {
-            mContentView.layout(getPaddingLeft(), mCurrentContentOffsetTop + paddingTop, paddingLeft + mContentView.getMeasuredWidth(), mCurrentContentOffsetTop + paddingTop + mContentView.getMeasuredHeight());
+            int contentOffsetTop = mPullMode == PULL_MODE_OVERLAY ? 0 : mCurrentContentOffsetTop;
+            mContentView.layout(getPaddingLeft(), contentOffsetTop + paddingTop, paddingLeft + mContentView.getMeasuredWidth(), contentOffsetTop + paddingTop + mContentView.getMeasuredHeight());
+        }
+        if (mFooterView != null) {
+            int footerTop = getFooterTop(mCurrentContentOffsetTop);
+            mFooterView.layout(paddingLeft, footerTop, paddingLeft + mFooterView.getMeasuredWidth(), footerTop + mFooterHeight);
+        }
+    }
+
+    /**
+     * Draw the header on top of the other children whatever its index, which matters in
+     * {@link #PULL_MODE_OVERLAY} where the content never moves out of its way.
+     */
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        int headerIndex = mHeaderView != null ? indexOfChild(mHeaderView) : -1;
+        if (headerIndex < 0) {
+            return i;
         }
+        if (i == childCount - 1) {
+            return headerIndex;
+        }
+        return i < headerIndex ? i : i + 1;
+    }
+
+    private int getFooterTop(int offset) {
+        int contentHeight = mContentView != null ? mContentView.getMeasuredHeight() : 0;
+        return getPaddingTop() + contentHeight + offset;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mPartialRefreshCompleted) {
+            drawProgressBar(canvas);
+        }
+        if (mPerformanceMonitor != null) {
+            mPerformanceMonitor.onDraw(this, canvas, mState, mCurrentContentOffsetTop, mProgressingAnimationCount > 0);
+        }
+    }
+
+    //slim bar at the top of the content while the rest of a partially completed refresh loads
+    private void drawProgressBar(Canvas canvas) {
+        int left = getPaddingLeft();
+        int top = getPaddingTop() + mCurrentContentOffsetTop;
+        int right = getWidth() - getPaddingRight();
+        int bottom = top + mProgressBarHeight;
+        mProgressPaint.setAlpha(PROGRESS_TRACK_ALPHA);
+        canvas.drawRect(left, top, right, bottom, mProgressPaint);
+        mProgressPaint.setAlpha(0xFF);
+        canvas.drawRect(left, top, left + (right - left) * mRefreshProgress, bottom, mProgressPaint);
     }
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
-        if (!isEnabled() || mState == STATE_PULL_REFRESHING || canChildScrollUp() || mNestedScrollInProgress || mProgressingAnimationCount > 0) {
+        if (!isEnabled() || mState == STATE_PULL_REFRESHING || !canPull() || mNestedScrollInProgress || mProgressingAnimationCount > 0) {
             return false;
         }
         int action = MotionEventCompat.getActionMasked(ev);
@@ -165,9 +431,13 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
                     return false;
                 }
                 float yDiff = y - mStartMotionY;
-                if (yDiff > mTouchSlop && !mIsBeingDragged) {
-                    mStartMotionY = mStartMotionY + mTouchSlop;
-                    mIsBeingDragged = true;
+                if (Math.abs(yDiff) > mTouchSlop && !mIsBeingDragged) {
+                    int direction = getPullDirection(yDiff);
+                    if (direction != 0) {
+                        mPullDirection = direction;
+                        mStartMotionY = mStartMotionY + direction * mTouchSlop;
+                        mIsBeingDragged = true;
+                    }
                 }
                 break;
             case MotionEventCompat.ACTION_POINTER_UP:
@@ -184,6 +454,21 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         return mIsBeingDragged;
     }
 
+    private boolean canPull() {
+        return !canChildScrollUp() || isPullUpEnabled() && !canChildScrollDown();
+    }
+
+    //the direction a drag of yDiff pulls in, 0 if it should scroll the content instead
+    private int getPullDirection(float yDiff) {
+        if (yDiff > 0 && !canChildScrollUp()) {
+            return PULL_DOWN;
+        }
+        if (yDiff < 0 && isPullUpEnabled() && !canChildScrollDown()) {
+            return PULL_UP;
+        }
+        return 0;
+    }
+
     private float getMotionEventY(MotionEvent ev, int activePointerId) {
         final int index = MotionEventCompat.findPointerIndex(ev, activePointerId);
         if (index < 0) {
@@ -194,7 +479,17 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if (!isEnabled() || mState == STATE_PULL_REFRESHING || canChildScrollUp() || mNestedScrollInProgress || mProgressingAnimationCount > 0) {
+        if (mPerformanceMonitor == null) {
+            return handleTouchEvent(event);
+        }
+        mPerformanceMonitor.onTouchEventStart();
+        boolean handled = handleTouchEvent(event);
+        mPerformanceMonitor.onTouchEventEnd();
+        return handled;
+    }
+
+    private boolean handleTouchEvent(MotionEvent event) {
+        if (!isEnabled() || mState == STATE_PULL_REFRESHING || (!mIsBeingDragged && !canPull()) || mNestedScrollInProgress || mProgressingAnimationCount > 0) {
             return false;
         }
         int action = MotionEventCompat.getActionMasked(event);
@@ -211,8 +506,17 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
                     return false;
                 }
                 int y = (int) MotionEventCompat.getY(event, pointerIndex);
-                float pullDistance = (y - mStartMotionY) * DRAG_RATE;
-                offsetTops(pullDistance, y);
+                if (!mIsBeingDragged) {
+                    //the content did not take the down event, the first move decides the direction
+                    int direction = getPullDirection(y - mStartMotionY);
+                    if (direction == 0) {
+                        break;
+                    }
+                    mPullDirection = direction;
+                    mIsBeingDragged = true;
+                }
+                float pullDistance = getPullDistance((y - mStartMotionY) * mPullDirection);
+                offsetTops(pullDistance * mPullDirection, y);
                 if (pullDistance < 0) {
                     return false;
                 }
@@ -236,6 +540,7 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
                 break;
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
+                mIsBeingDragged = false;
                 mActivePointerId = INVALID_POINTER;
                 finishPull();
                 break;
@@ -255,32 +560,75 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         }
     }
 
+    //stop running offset animations without firing their listeners and settle on a stable state
+    private void cancelAnimations() {
+        //not mHeaderView.getAnimation(), the header has already dropped it when detached before this layout
+        if (mOffsetAnimation == null) {
+            return;
+        }
+        boolean toTrigger = mOffsetAnimation == mAnimateToTriggerPosition;
+        mOffsetAnimation = null;
+        mAnimateToTriggerPosition.setAnimationListener(null);
+        mAnimateToStartPosition.setAnimationListener(null);
+        mHeaderView.clearAnimation();
+        mAnimateToTriggerPosition.setAnimationListener(animationToTriggerListener);
+        mProgressingAnimationCount = 0;
+        demoteLayers();
+        mCurrentContentOffsetTop = 0;
+        if (toTrigger) {
+            //the refresh has not been dispatched yet, fall back to idle
+            settleState(STATE_IDLE);
+        } else if (mToStartListener == completedToStartListener) {
+            refreshState(STATE_REFRESH_COMPLETED);
+        } else if (mToStartListener != partialToStartListener) {
+            //a partially completed refresh stays refreshing with the header collapsed
+            settleState(STATE_IDLE);
+        }
+        requestLayout();
+    }
+
+    //set a state outside the pull flow, e.g. on restore or when the animations are dropped;
+    //the header and footer are updated by the caller
+    private void settleState(int state) {
+        if (mState == state) {
+            return;
+        }
+        int previousState = mState;
+        mState = state;
+        if (state == STATE_IDLE) {
+            mAutoRefreshScheduler.update();
+        }
+        dispatchStateChanged(state, previousState);
+    }
+
     private void animateOffsetToTriggerPosition() {
-        mFrom = mContentView.getTop();
+        mFrom = mCurrentContentOffsetTop;
         mAnimateToTriggerPosition.reset();
-        mAnimateToTriggerPosition.setDuration(ANIMATE_TO_TRIGGER_DURATION);
+        mAnimateToTriggerPosition.setDuration(mAnimateToTriggerDuration);
         mAnimateToTriggerPosition.setInterpolator(mDecelerateInterpolator);
         mHeaderView.clearAnimation();
         mHeaderView.startAnimation(mAnimateToTriggerPosition);
+        mOffsetAnimation = mAnimateToTriggerPosition;
     }
 
-    private void animateOffsetToStartPosition(boolean isPullFinished) {
-        mFrom = mContentView.getTop();
+    private void animateOffsetToStartPosition(Animation.AnimationListener listener) {
+        //clearing ends a running animation with its own listener, e.g. a partial collapse, before
+        //the listener is swapped; otherwise the new listener would run twice
+        mHeaderView.clearAnimation();
+        mFrom = mCurrentContentOffsetTop;
+        mToStartListener = listener;
         mAnimateToStartPosition.reset();
-        mAnimateToStartPosition.setDuration(ANIMATE_TO_START_DURATION);
+        mAnimateToStartPosition.setDuration(mAnimateToStartDuration);
         mAnimateToStartPosition.setInterpolator(mDecelerateInterpolator);
-        mAnimateToStartPosition.setAnimationListener(isPullFinished ? pullFinishedToStartListener : completedToStartListener);
-        mHeaderView.clearAnimation();
+        mAnimateToStartPosition.setAnimationListener(listener);
         mHeaderView.startAnimation(mAnimateToStartPosition);
+        mOffsetAnimation = mAnimateToStartPosition;
     }
 
     private final Animation mAnimateToTriggerPosition = new Animation() {
         @Override
         protected void applyTransformation(float interpolatedTime, Transformation t) {
-            int finalContentTop = mHeaderHeight;
-            if (MIN_REFRESH_TRIGGER_DISTANCE > mHeaderHeight) {
-                finalContentTop = MIN_REFRESH_TRIGGER_DISTANCE;
-            }
+            int finalContentTop = mTriggerDistance * mPullDirection;
             int targetContentTop = (mFrom + (int) ((finalContentTop - mFrom) * interpolatedTime));
             offsetTops(targetContentTop);
         }
@@ -302,7 +650,7 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
 
         @Override
         public void onAnimationEnd(Animation animation) {
-            mProgressingAnimationCount--;
+            onOffsetAnimationEnd();
             refreshState(STATE_IDLE);
         }
 
@@ -319,7 +667,7 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
 
         @Override
         public void onAnimationEnd(Animation animation) {
-            mProgressingAnimationCount--;
+            onOffsetAnimationEnd();
             refreshState(STATE_REFRESH_COMPLETED);
         }
 
@@ -328,6 +676,22 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         }
     };
 
+    private Animation.AnimationListener partialToStartListener = new Animation.AnimationListener() {
+        @Override
+        public void onAnimationStart(Animation animation) {
+            mProgressingAnimationCount++;
+        }
+
+        @Override
+        public void onAnimationEnd(Animation animation) {
+            onOffsetAnimationEnd();
+        }
+
+        @Override
+        public void onAnimationRepeat(Animation animation) {
+        }
+    };
+
     private Animation.AnimationListener animationToTriggerListener = new Animation.AnimationListener() {
         @Override
         public void onAnimationStart(Animation animation) {
@@ -336,9 +700,13 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
 
         @Override
         public void onAnimationEnd(Animation animation) {
-            mProgressingAnimationCount--;
+            onOffsetAnimationEnd();
             refreshState(STATE_PULL_REFRESHING);
-            if (mRefreshListener != null) {
+            if (mPullDirection == PULL_UP) {
+                if (mLoadMoreListener != null) {
+                    mLoadMoreListener.onLoadMore();
+                }
+            } else if (mRefreshListener != null) {
                 mRefreshListener.onRefresh();
             }
         }
@@ -352,38 +720,98 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         offsetTops(targetContentTop, -1);
     }
 
+    /**
+     * @param targetContentTop the offset of the content, positive when pulling down and negative when pulling up
+     */
     private void offsetTops(float targetContentTop, int motionY) {
-        checkPullDistance(targetContentTop);
-        if (targetContentTop < 0) {
-            targetContentTop = 0;
-        } else if (targetContentTop >= mMaxPullDistance) {
+        if (!mInMotion) {
+            promoteLayers();
+        }
+        float pullDistance = targetContentTop * mPullDirection;
+        if (pullDistance < 0) {
+            pullDistance = 0;
+        } else if (pullDistance >= mMaxPullDistance) {
             if (motionY != -1) {
-                mStartMotionY = motionY - (mMaxPullDistance / DRAG_RATE);
+                mStartMotionY = motionY - mMaxDragDistance * mPullDirection;
             }
-            return;
+            pullDistance = mMaxPullDistance;
         }
-        mCurrentContentOffsetTop = (int) targetContentTop;
+        mCurrentContentOffsetTop = (int) pullDistance * mPullDirection;
 
-        int targetHeaderTop = (int) (targetContentTop - mHeaderHeight);
-        int offsetContent = (int) (targetContentTop - mContentView.getTop());
-        int offsetHeader = targetHeaderTop - mHeaderView.getTop();
+        int offsetHeader = mCurrentContentOffsetTop - mHeaderHeight - mHeaderView.getTop();
         mHeaderView.offsetTopAndBottom(offsetHeader);
-        mContentView.offsetTopAndBottom(offsetContent);
+        if (mFooterView != null) {
+            mFooterView.offsetTopAndBottom(getFooterTop(mCurrentContentOffsetTop) - mFooterView.getTop());
+        }
+        if (mPullMode == PULL_MODE_MOVE_CONTENT) {
+            int offsetContent = mCurrentContentOffsetTop + getPaddingTop() - mContentView.getTop();
+            mContentView.offsetTopAndBottom(offsetContent);
+        }
+        //after moving, so that handlers and state listeners see the offset of this event
+        checkPullDistance(pullDistance);
+    }
+
+    private void onOffsetAnimationEnd() {
+        mOffsetAnimation = null;
+        mProgressingAnimationCount--;
+        if (mProgressingAnimationCount <= 0) {
+            demoteLayers();
+        }
+    }
+
+    //render the moving views from hardware layers while they move, instead of redrawing them every frame
+    private void promoteLayers() {
+        mInMotion = true;
+        if (mLayerPolicy == null) {
+            return;
+        }
+        mHeaderLayerPromoted = promoteLayer(mHeaderView, true);
+        mContentLayerPromoted = mPullMode == PULL_MODE_MOVE_CONTENT && promoteLayer(mContentView, false);
+    }
+
+    private boolean promoteLayer(View view, boolean isHeader) {
+        if (view == null || view.getLayerType() != LAYER_TYPE_NONE
+            || !mLayerPolicy.shouldUseHardwareLayer(this, view, isHeader)) {
+            //keep a layer type set by the app
+            return false;
+        }
+        view.setLayerType(LAYER_TYPE_HARDWARE, null);
+        return true;
+    }
+
+    private void demoteLayers() {
+        mInMotion = false;
+        if (mHeaderLayerPromoted) {
+            mHeaderLayerPromoted = false;
+            mHeaderView.setLayerType(LAYER_TYPE_NONE, null);
+        }
+        if (mContentLayerPromoted) {
+            mContentLayerPromoted = false;
+            mContentView.setLayerType(LAYER_TYPE_NONE, null);
+        }
     }
 
     private void checkPullDistance(float pullDistance) {
         if (pullDistance > 0 && pullDistance < mTriggerDistance) {
             refreshState(STATE_PULLING, pullDistance / mTriggerDistance * 100);
+        } else if (mSecondStageDistance > 0 && mPullDirection == PULL_DOWN && pullDistance >= mSecondStageDistance) {
+            refreshState(STATE_SECOND_STAGE_READY);
         } else if (pullDistance >= mTriggerDistance) {
             refreshState(STATE_PULL_REFRESH_READY);
         }
     }
 
     private void finishPull() {
-        if (mState == STATE_PULL_REFRESH_READY) {
+        if (mPerformanceMonitor != null) {
+            mPerformanceMonitor.onGestureEnd();
+        }
+        if (mState == STATE_SECOND_STAGE_READY) {
+            refreshState(STATE_SECOND_STAGE_OPENED);
+            animateOffsetToStartPosition(pullFinishedToStartListener);
+        } else if (mState == STATE_PULL_REFRESH_READY) {
             animateOffsetToTriggerPosition();
         } else {
-            animateOffsetToStartPosition(true);
+            animateOffsetToStartPosition(pullFinishedToStartListener);
         }
     }
 
@@ -398,45 +826,157 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         if (mState == state && state != STATE_PULLING) {
             return;
         }
+        int previousState = mState;
+        View handlerView = mPullDirection == PULL_UP ? mFooterView : mHeaderView;
+        if (mPerformanceMonitor != null) {
+            if (state == STATE_PULLING && mState == STATE_IDLE) {
+                mPerformanceMonitor.onGestureStart();
+            }
+            mPerformanceMonitor.beforeHandlerCallback(handlerView);
+        }
         mState = state;
         switch (mState) {
             case STATE_PULLING:
-                if (mHeaderHandler != null) {
+                if (previousState == STATE_IDLE) {
+                    //a new pull, preload again
+                    mSecondStagePreloaded = false;
+                }
+                if (mPullDirection == PULL_UP) {
+                    if (mFooterHandler instanceof IPullingFooterHandler) {
+                        ((IPullingFooterHandler) mFooterHandler).onPulling((int) pullPercent);
+                    }
+                } else if (mHeaderHandler != null) {
                     mHeaderHandler.onPulling((int) pullPercent);
                 }
                 break;
             case STATE_PULL_REFRESH_READY:
-                if (mHeaderHandler != null) {
+                if (mPullDirection == PULL_UP) {
+                    if (mFooterHandler instanceof IPullingFooterHandler) {
+                        ((IPullingFooterHandler) mFooterHandler).onPulling(100);
+                    }
+                    if (mFooterHandler != null) {
+                        mFooterHandler.onRefreshReady();
+                    }
+                    break;
+                }
+                preloadSecondStage();
+                if (previousState == STATE_SECOND_STAGE_READY) {
+                    if (mHeaderHandler instanceof ISecondStageHeaderHandler) {
+                        ((ISecondStageHeaderHandler) mHeaderHandler).onSecondStageCanceled();
+                    }
+                } else if (mHeaderHandler != null) {
+                    mHeaderHandler.onPulling(100);
+                    mHeaderHandler.onRefreshReady();
+                }
+                break;
+            case STATE_SECOND_STAGE_READY:
+                preloadSecondStage();
+                if (previousState == STATE_PULLING && mHeaderHandler != null) {
+                    //pulled past both thresholds at once
                     mHeaderHandler.onPulling(100);
                     mHeaderHandler.onRefreshReady();
                 }
+                if (mHeaderHandler instanceof ISecondStageHeaderHandler) {
+                    ((ISecondStageHeaderHandler) mHeaderHandler).onSecondStageReady();
+                }
+                break;
+            case STATE_SECOND_STAGE_OPENED:
+                if (mSecondStageListener != null) {
+                    mSecondStageListener.onOpenSecondStage();
+                }
                 break;
             case STATE_PULL_REFRESHING:
+                if (mPullDirection == PULL_UP) {
+                    if (mFooterHandler != null) {
+                        mFooterHandler.onRefreshing();
+                    }
+                    break;
+                }
+                mRefreshProgress = 0;
+                mPartialRefreshCompleted = false;
                 if (mHeaderHandler != null) {
                     mHeaderHandler.onRefreshing();
                 }
                 break;
             case STATE_REFRESH_COMPLETED:
                 mState = STATE_IDLE;
+                if (mPullDirection == PULL_UP) {
+                    if (mFooterHandler != null) {
+                        mFooterHandler.onRefreshCompleted();
+                    }
+                    mAutoRefreshScheduler.update();
+                    break;
+                }
+                if (mPartialRefreshCompleted) {
+                    mPartialRefreshCompleted = false;
+                    invalidate();
+                }
+                mLastRefreshTime = System.currentTimeMillis();
+                mLastRefreshSucceeded = mPendingRefreshSucceeded;
+                saveLastRefreshTime();
                 if (mHeaderHandler != null) {
                     mHeaderHandler.onRefreshCompleted();
                 }
+                mAutoRefreshScheduler.onRefreshCompleted(mLastRefreshSucceeded);
+                break;
+            case STATE_IDLE:
+                mAutoRefreshScheduler.update();
                 break;
             default:
                 break;
         }
+        if (mPerformanceMonitor != null) {
+            mPerformanceMonitor.afterHandlerCallback(handlerView);
+        }
+        dispatchStateChanged(state, previousState);
+    }
+
+    private void dispatchStateChanged(int state, int previousState) {
+        OnStateChangeListener[] listeners = mStateListeners;
+        if (listeners.length == 0) {
+            return;
+        }
+        float progress = mTriggerDistance > 0 ? Math.abs(mCurrentContentOffsetTop) / (float) mTriggerDistance : 0;
+        for (OnStateChangeListener listener : listeners) {
+            listener.onStateChanged(state, previousState, mCurrentContentOffsetTop, progress);
+        }
+    }
+
+    private void preloadSecondStage() {
+        if (mSecondStagePreloaded || mSecondStageDistance <= 0 || mSecondStageListener == null) {
+            return;
+        }
+        mSecondStagePreloaded = true;
+        final OnSecondStageListener listener = mSecondStageListener;
+        BackgroundThread.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onPreloadSecondStage();
+            }
+        });
     }
 
     //avoid error change
     private boolean checkIfSafe(int state) {
         switch (state) {
             case STATE_PULL_REFRESH_READY:
-                if (mState != STATE_PULLING) {
+                if (!(mState == STATE_PULLING || mState == STATE_SECOND_STAGE_READY)) {
+                    return false;
+                }
+                break;
+            case STATE_SECOND_STAGE_READY:
+                if (!(mState == STATE_PULLING || mState == STATE_PULL_REFRESH_READY)) {
+                    return false;
+                }
+                break;
+            case STATE_SECOND_STAGE_OPENED:
+                if (mState != STATE_SECOND_STAGE_READY) {
                     return false;
                 }
                 break;
             case STATE_PULLING:
-                if (!(mState == STATE_IDLE || mState == STATE_PULLING || mState == STATE_PULL_REFRESH_READY)) {
+                if (!(mState == STATE_IDLE || mState == STATE_PULLING || mState == STATE_PULL_REFRESH_READY
+                    || mState == STATE_SECOND_STAGE_READY)) {
                     return false;
                 }
                 break;
@@ -465,6 +1005,14 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         }
     }
 
+    /**
+     * @return Whether it is possible for the child view of this layout to
+     * scroll down. Override this if the child view is a custom view.
+     */
+    public boolean canChildScrollDown() {
+        return ViewCompat.canScrollVertically(mContentView, 1);
+    }
+
     // NestedScrollingParent
 
     @Override
@@ -487,21 +1035,21 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
     public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
         // If we are in the middle of consuming, a scroll, then we want to move the spinner back up
         // before allowing the list to scroll
-        if (dy > 0 && mTotalUnconsumed > 0) {
-            if (dy > mTotalUnconsumed) {
-                consumed[1] = dy - (int) mTotalUnconsumed;
+        // (up for a pull down, down for a pull up)
+        int distance = dy * mPullDirection;
+        if (distance > 0 && mTotalUnconsumed > 0) {
+            if (distance > mTotalUnconsumed) {
+                consumed[1] = (distance - (int) mTotalUnconsumed) * mPullDirection;
                 mTotalUnconsumed = 0;
             } else {
-                mTotalUnconsumed -= dy;
+                mTotalUnconsumed -= distance;
                 consumed[1] = dy;
             }
-            float pullDistance = mTotalUnconsumed * DRAG_RATE;
-            if (pullDistance > mMaxPullDistance) {
+            if (mTotalUnconsumed > mMaxDragDistance) {
                 //ignore redundant pull distance
-                mTotalUnconsumed = mMaxPullDistance / DRAG_RATE;
-                pullDistance = mMaxPullDistance;
+                mTotalUnconsumed = mMaxDragDistance;
             }
-            offsetTops((int) pullDistance);
+            offsetTops((int) getPullDistance(mTotalUnconsumed) * mPullDirection);
         }
 
         // Now let our nested parent consume the leftovers
@@ -527,6 +1075,8 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         if (mTotalUnconsumed > 0) {
             finishPull();
             mTotalUnconsumed = 0;
+        } else if (mProgressingAnimationCount <= 0) {
+            demoteLayers();
         }
         // Dispatch up our nested parent
         stopNestedScroll();
@@ -545,15 +1095,19 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         // 'offset in window 'functionality to see if we have been moved from the event.
         // This is a decent indication of whether we should take over the event stream or not.
         final int dy = dyUnconsumed + mParentOffsetInWindow[1];
-        if (dy < 0 && !canChildScrollUp()) {
+        if (dy == 0) {
+            return;
+        }
+        //keep the direction of a pull in progress, scrolls the other way are handled in onNestedPreScroll
+        int direction = mTotalUnconsumed > 0 ? mPullDirection : getPullDirection(-dy);
+        if (direction != 0 && -dy * direction > 0) {
+            mPullDirection = direction;
             mTotalUnconsumed += Math.abs(dy);
-            float pullDistance = mTotalUnconsumed * DRAG_RATE;
-            if (pullDistance > mMaxPullDistance) {
+            if (mTotalUnconsumed > mMaxDragDistance) {
                 //ignore redundant pull distance
-                mTotalUnconsumed = mMaxPullDistance / DRAG_RATE;
-                pullDistance = mMaxPullDistance;
+                mTotalUnconsumed = mMaxDragDistance;
             }
-            offsetTops((int) pullDistance);
+            offsetTops((int) getPullDistance(mTotalUnconsumed) * mPullDirection);
         }
     }
 
@@ -643,31 +1197,456 @@ public class JRefreshLayout extends ViewGroup implements NestedScrollingParent,
         if (headerView instanceof IHeaderHandler) {
             setHeadHandler(((IHeaderHandler) mHeaderView));
         }
+        if (mPerformanceMonitor != null) {
+            mPerformanceMonitor.watchHandlerViews(mHeaderView, mFooterView);
+        }
     }
 
     public void setHeadHandler(IHeaderHandler headHandler) {
         this.mHeaderHandler = headHandler;
     }
 
+    /**
+     * Set the view shown below the content when pulling up, this enables pulling up.
+     */
+    public void setFooterView(View footerView) {
+        if (mFooterView != null && mFooterView != footerView) {
+            removeView(mFooterView);
+        }
+        mFooterView = footerView;
+        if (mPerformanceMonitor != null) {
+            mPerformanceMonitor.watchHandlerViews(mHeaderView, mFooterView);
+        }
+        if (footerView == null) {
+            setPullUpEnabled(false);
+            return;
+        }
+        LayoutParams lp = footerView.getLayoutParams();
+        if (lp == null) {
+            lp = new LayoutParams(-1, -2);
+            footerView.setLayoutParams(lp);
+        }
+        addView(footerView);
+        if (footerView instanceof IFooterHandler) {
+            setFooterHandler((IFooterHandler) footerView);
+        }
+        setPullUpEnabled(true);
+    }
+
+    public void setFooterHandler(IFooterHandler footerHandler) {
+        this.mFooterHandler = footerHandler;
+    }
+
+    /**
+     * Enable pulling up from the bottom edge, which adds a {@link DefaultFooter} if no footer view is set.
+     */
+    public void setPullUpEnabled(boolean enabled) {
+        if (enabled && mFooterView == null) {
+            setFooterView(new DefaultFooter(getContext()));
+            return;
+        }
+        mPullUpEnabled = enabled;
+    }
+
+    public boolean isPullUpEnabled() {
+        return mPullUpEnabled && mFooterView != null;
+    }
+
+    public void setOnLoadMoreListener(OnLoadMoreListener listener) {
+        this.mLoadMoreListener = listener;
+    }
+
+    public void setLoadMoreCompleted() {
+        if (isLoadingMore()) {
+            animateOffsetToStartPosition(completedToStartListener);
+        }
+    }
+
+    public boolean isLoadingMore() {
+        return mState == STATE_PULL_REFRESHING && mPullDirection == PULL_UP;
+    }
+
     public void setRefreshCompleted() {
-        animateOffsetToStartPosition(false);
+        setRefreshCompleted(true);
+    }
+
+    /**
+     * @param succeeded outcome of the refresh, stored along with the last refresh time
+     */
+    public void setRefreshCompleted(boolean succeeded) {
+        if (isLoadingMore()) {
+            //a pull up is completed by setLoadMoreCompleted()
+            return;
+        }
+        mPendingRefreshSucceeded = succeeded;
+        if (mPartialRefreshCompleted && mProgressingAnimationCount <= 0) {
+            //the header is already collapsed
+            refreshState(STATE_REFRESH_COMPLETED);
+            return;
+        }
+        animateOffsetToStartPosition(completedToStartListener);
     }
 
     public void setOnRefreshListener(OnRefreshListener listener) {
         this.mRefreshListener = listener;
     }
 
+    /**
+     * Pulling beyond {@code distance} and releasing opens a second stage instead of refreshing.
+     *
+     * @param distance pull distance in px, beyond the trigger distance, 0 to disable the second stage
+     */
+    public void setSecondStageDistance(int distance) {
+        mMinSecondStageDistance = Math.max(0, distance);
+        updatePullDistances();
+    }
+
+    public int getSecondStageDistance() {
+        return mSecondStageDistance;
+    }
+
+    public void setOnSecondStageListener(OnSecondStageListener listener) {
+        this.mSecondStageListener = listener;
+    }
+
+    public void addOnStateChangeListener(OnStateChangeListener listener) {
+        OnStateChangeListener[] listeners = mStateListeners;
+        for (OnStateChangeListener l : listeners) {
+            if (l == listener) {
+                return;
+            }
+        }
+        OnStateChangeListener[] newListeners = new OnStateChangeListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = listener;
+        mStateListeners = newListeners;
+    }
+
+    public void removeOnStateChangeListener(OnStateChangeListener listener) {
+        OnStateChangeListener[] listeners = mStateListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                if (listeners.length == 1) {
+                    mStateListeners = NO_STATE_LISTENERS;
+                    return;
+                }
+                OnStateChangeListener[] newListeners = new OnStateChangeListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                mStateListeners = newListeners;
+                return;
+            }
+        }
+    }
+
     public void startRefreshing() {
+        if (mState == STATE_PULL_REFRESHING) {
+            return;
+        }
+        mPullDirection = PULL_DOWN;
         animateOffsetToTriggerPosition();
     }
 
+    /**
+     * Start refreshing every {@code interval} ms while this layout is visible and its window is focused.
+     *
+     * @param interval interval in ms, 0 to stop auto refreshing
+     * @param jitter   a random delay up to this many ms is added to each interval
+     */
+    public void setAutoRefreshInterval(long interval, long jitter) {
+        mAutoRefreshScheduler.setInterval(interval, jitter);
+    }
+
+    public void setAutoRefreshInterval(long interval) {
+        setAutoRefreshInterval(interval, 0);
+    }
+
+    boolean isIdle() {
+        return mState == STATE_IDLE && mProgressingAnimationCount <= 0 && !isTouchInProgress();
+    }
+
+    boolean isTouchInProgress() {
+        return mIsBeingDragged || mNestedScrollInProgress;
+    }
+
+    /**
+     * Report the progress of the running refresh to the header and the progress bar.
+     *
+     * @param progress progress in [0, 1]
+     */
+    public void setRefreshProgress(float progress) {
+        if (!isRefreshing()) {
+            return;
+        }
+        mRefreshProgress = Math.max(0, Math.min(1, progress));
+        if (mHeaderHandler instanceof IProgressHeaderHandler) {
+            ((IProgressHeaderHandler) mHeaderHandler).onRefreshProgress(mRefreshProgress);
+        }
+        if (mPartialRefreshCompleted) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Part of the results is available. The header collapses so the content can be used, and a slim
+     * progress bar is shown until {@link #setRefreshCompleted()} is called.
+     */
+    public void setPartialRefreshCompleted() {
+        if (!isRefreshing() || mPartialRefreshCompleted) {
+            return;
+        }
+        mPartialRefreshCompleted = true;
+        if (mHeaderHandler instanceof IProgressHeaderHandler) {
+            ((IProgressHeaderHandler) mHeaderHandler).onPartialRefreshCompleted();
+        }
+        animateOffsetToStartPosition(partialToStartListener);
+        invalidate();
+    }
+
+    /**
+     * @param pullMode {@link #PULL_MODE_MOVE_CONTENT} or {@link #PULL_MODE_OVERLAY}
+     */
+    public void setPullMode(int pullMode) {
+        if (mPullMode == pullMode) {
+            return;
+        }
+        mPullMode = pullMode;
+        requestLayout();
+    }
+
+    public int getPullMode() {
+        return mPullMode;
+    }
+
+    /**
+     * Set the policy deciding which views are drawn from a hardware layer while they move,
+     * null to never use hardware layers.
+     */
+    public void setLayerPolicy(LayerPolicy policy) {
+        if (policy == null) {
+            demoteLayers();
+        }
+        mLayerPolicy = policy;
+    }
+
+    public void setProgressBarColor(int color) {
+        mProgressPaint.setColor(color);
+        invalidate();
+    }
+
+    public boolean isRefreshing() {
+        return mState == STATE_PULL_REFRESHING && mPullDirection == PULL_DOWN;
+    }
+
+    public long getLastRefreshTime() {
+        return mLastRefreshTime;
+    }
+
+    public boolean isLastRefreshSucceeded() {
+        return mLastRefreshSucceeded;
+    }
+
+    /**
+     * Set the key the last refresh time is persisted with, null to disable persisting.
+     * By default the class name of the host activity and the resource name of this layout's id are used.
+     */
+    public void setRefreshTimeKey(String key) {
+        mRefreshTimeKey = key;
+        mRefreshTimeKeySet = true;
+        mRefreshTimeRequested = false;
+        if (getWindowToken() != null) {
+            loadLastRefreshTime();
+        }
+    }
+
+    private String getRefreshTimeKey() {
+        if (mRefreshTimeKeySet) {
+            return mRefreshTimeKey;
+        }
+        if (getId() == NO_ID) {
+            return null;
+        }
+        String idName;
+        try {
+            idName = getResources().getResourceEntryName(getId());
+        } catch (Resources.NotFoundException e) {
+            //generated ids have no stable name
+            return null;
+        }
+        //screens reusing an id name must not share their refresh time
+        return getHostName() + "/" + idName;
+    }
+
+    private String getHostName() {
+        Context context = getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return context.getClass().getName();
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return getContext().getClass().getName();
+    }
+
+    private void loadLastRefreshTime() {
+        if (mRefreshTimeRequested || isInEditMode()) {
+            return;
+        }
+        String key = getRefreshTimeKey();
+        if (key == null) {
+            return;
+        }
+        mRefreshTimeRequested = true;
+        RefreshTimeStore.get(getContext()).load(key, new RefreshTimeStore.OnLoadedListener() {
+            @Override
+            public void onLoaded(long lastRefreshTime, boolean succeeded) {
+                //a refresh finished or a state was restored meanwhile
+                if (lastRefreshTime <= mLastRefreshTime) {
+                    return;
+                }
+                mLastRefreshSucceeded = succeeded;
+                setLastRefreshTime(lastRefreshTime);
+                mAutoRefreshScheduler.update();
+            }
+        });
+    }
+
+    private void saveLastRefreshTime() {
+        String key = getRefreshTimeKey();
+        if (key == null || isInEditMode()) {
+            return;
+        }
+        RefreshTimeStore.get(getContext()).save(key, mLastRefreshTime, mLastRefreshSucceeded);
+    }
+
+    private void setLastRefreshTime(long lastRefreshTime) {
+        mLastRefreshTime = lastRefreshTime;
+        if (mHeaderView instanceof DefaultHeader) {
+            ((DefaultHeader) mHeaderView).setLastRefreshTime(lastRefreshTime);
+        }
+    }
+
     private void log(String message) {
         if (BuildConfig.DEBUG) {
             Log.d(LOG_TAG, message);
         }
     }
 
+    /**
+     * Check the cost of pulls against the budgets of {@code monitor} and show its overlay, only in
+     * debuggable apps as the checks themselves are not free.
+     *
+     * @param monitor null to stop monitoring
+     */
+    public void setPerformanceMonitor(PerformanceMonitor monitor) {
+        if (monitor != null && (getContext().getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            Log.w(LOG_TAG, "Performance monitoring is only available in debuggable apps");
+            return;
+        }
+        if (mPerformanceMonitor != null) {
+            mPerformanceMonitor.unwatchHandlerViews();
+        }
+        mPerformanceMonitor = monitor;
+        if (monitor != null) {
+            monitor.watchHandlerViews(mHeaderView, mFooterView);
+        }
+        invalidate();
+    }
+
     public interface OnRefreshListener {
         void onRefresh();
     }
+
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
+
+    public interface OnSecondStageListener {
+        /**
+         * Called on a background thread once per pull that crosses the trigger distance, prepare
+         * the second stage here so that opening it is instant.
+         */
+        void onPreloadSecondStage();
+
+        /**
+         * Called on the main thread when released beyond the second stage distance.
+         */
+        void onOpenSecondStage();
+    }
+
+    public interface OnStateChangeListener {
+        /**
+         * Called on every state change, and on every pull update while {@link #STATE_PULLING}, so it
+         * must be cheap. {@link #STATE_REFRESH_COMPLETED} is reported once, the layout is idle after it.
+         *
+         * @param offset   offset of the content in px, negative when pulling up
+         * @param progress the pulled distance relative to the trigger distance, 1 when a release refreshes
+         */
+        void onStateChanged(int state, int previousState, int offset, float progress);
+    }
+
+    public interface LayerPolicy {
+        /**
+         * @param view     the header or the content view about to move
+         * @param isHeader whether {@code view} is the header
+         * @return whether to draw {@code view} from a hardware layer while it moves
+         */
+        boolean shouldUseHardwareLayer(JRefreshLayout layout, View view, boolean isHeader);
+    }
+
+    /**
+     * Promote the header only, unless it is taller than the layout itself.
+     */
+    public static final LayerPolicy DEFAULT_LAYER_POLICY = new LayerPolicy() {
+        @Override
+        public boolean shouldUseHardwareLayer(JRefreshLayout layout, View view, boolean isHeader) {
+            return isHeader && view.getHeight() <= layout.getHeight();
+        }
+    };
+
+    static class SavedState extends BaseSavedState {
+        int state;
+        int contentOffsetTop;
+        int pullDirection;
+        long lastRefreshTime;
+        boolean partialRefreshCompleted;
+        float refreshProgress;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            state = in.readInt();
+            contentOffsetTop = in.readInt();
+            pullDirection = in.readInt();
+            lastRefreshTime = in.readLong();
+            partialRefreshCompleted = in.readInt() != 0;
+            refreshProgress = in.readFloat();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(state);
+            out.writeInt(contentOffsetTop);
+            out.writeInt(pullDirection);
+            out.writeLong(lastRefreshTime);
+            out.writeInt(partialRefreshCompleted ? 1 : 0);
+            out.writeFloat(refreshProgress);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 }
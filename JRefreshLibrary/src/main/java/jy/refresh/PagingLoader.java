@@ -0,0 +1,328 @@
+package jy.refresh;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.ViewTreeObserver;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads pages from a {@link PageSource} on a background executor and delivers them on the main
+ * thread. Only one page is loaded at a time; a refresh cancels the running load and restarts from
+ * the initial key, and failed loads are retried with an exponential backoff.
+ * <p>
+ * All methods must be called on the main thread.
+ *
+ * @param <K> the key of a page, e.g. a cursor or an offset
+ * @param <T> the type of the items
+ */
+public class PagingLoader<K, T> {
+
+    private static final String LOG_TAG = "PagingLoader";
+
+    private static final int DEFAULT_MAX_RETRIES = 3;
+
+    private static final long RETRY_BASE_DELAY = 1000;
+
+    private static ExecutorService sDefaultExecutor;
+
+    private final PageSource<K, T> mSource;
+    private final K mInitialKey;
+    private final Callback<T> mCallback;
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private JRefreshLayout mRefreshLayout;
+    private IFooterHandler mFooterHandler;
+    private K mNextKey;
+    private boolean mHasMore = true;
+    private boolean mLoading;
+    private boolean mLoadingRefresh;
+    private boolean mFailed;
+    private Future<?> mFuture;
+    private int mGeneration;
+    private int mRetryCount;
+    private int mMaxRetries = DEFAULT_MAX_RETRIES;
+
+    public PagingLoader(PageSource<K, T> source, K initialKey, Callback<T> callback) {
+        this(source, initialKey, callback, getDefaultExecutor());
+    }
+
+    public PagingLoader(PageSource<K, T> source, K initialKey, Callback<T> callback, ExecutorService executor) {
+        mSource = source;
+        mInitialKey = initialKey;
+        mNextKey = initialKey;
+        mCallback = callback;
+        mExecutor = executor;
+    }
+
+    /**
+     * Refresh through {@code layout}'s pull to refresh, and load the next page whenever its content
+     * is scrolled to the end or, if pulling up is enabled, pulled up. Pulling up after a failed
+     * page retries it.
+     */
+    public void attach(JRefreshLayout layout) {
+        detach();
+        mRefreshLayout = layout;
+        layout.setOnRefreshListener(new JRefreshLayout.OnRefreshListener() {
+            @Override
+            public void onRefresh() {
+                refresh();
+            }
+        });
+        layout.setOnLoadMoreListener(new JRefreshLayout.OnLoadMoreListener() {
+            @Override
+            public void onLoadMore() {
+                if (mFailed && !mLoadingRefresh) {
+                    //pulling up again retries the failed page
+                    retry();
+                } else {
+                    loadMore();
+                }
+                if (!mLoading || mLoadingRefresh) {
+                    //nothing to load, or a refresh is running
+                    mRefreshLayout.setLoadMoreCompleted();
+                }
+            }
+        });
+        layout.getViewTreeObserver().addOnScrollChangedListener(mScrollListener);
+    }
+
+    public void detach() {
+        if (mRefreshLayout == null) {
+            return;
+        }
+        ViewTreeObserver observer = mRefreshLayout.getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnScrollChangedListener(mScrollListener);
+        }
+        mRefreshLayout.setOnRefreshListener(null);
+        mRefreshLayout.setOnLoadMoreListener(null);
+        mRefreshLayout = null;
+    }
+
+    /**
+     * @param footerHandler notified when loading the next page starts and ends
+     */
+    public void setFooterHandler(IFooterHandler footerHandler) {
+        mFooterHandler = footerHandler;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        mMaxRetries = maxRetries;
+    }
+
+    /**
+     * Cancel any running load and load the first page again.
+     */
+    public void refresh() {
+        cancelLoading();
+        mNextKey = mInitialKey;
+        mHasMore = true;
+        load(true);
+    }
+
+    /**
+     * Load the next page, unless a page is loading, the last load failed or there are no more pages.
+     */
+    public void loadMore() {
+        if (mLoading || mFailed || !mHasMore) {
+            return;
+        }
+        load(false);
+    }
+
+    /**
+     * Retry the last failed load.
+     */
+    public void retry() {
+        if (!mFailed) {
+            return;
+        }
+        load(mLoadingRefresh);
+    }
+
+    /**
+     * Cancel the running load and any pending retry, completing the refresh or load-more it shows.
+     */
+    public void cancel() {
+        boolean loadingRefresh = mLoading && mLoadingRefresh;
+        cancelLoading();
+        if (loadingRefresh) {
+            finishLoading(true, false);
+        }
+    }
+
+    //a refresh restarting the load leaves the refresh it is part of running
+    private void cancelLoading() {
+        mGeneration++;
+        mMainHandler.removeCallbacks(mRetryRunnable);
+        if (mFuture != null) {
+            mFuture.cancel(true);
+            mFuture = null;
+        }
+        if (mLoading && !mLoadingRefresh) {
+            finishLoading(false, false);
+        }
+        mLoading = false;
+        mFailed = false;
+        mRetryCount = 0;
+    }
+
+    public boolean isLoading() {
+        return mLoading;
+    }
+
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    private void load(boolean refresh) {
+        if (!mLoading && !refresh && mFooterHandler != null) {
+            mFooterHandler.onRefreshing();
+        }
+        mLoading = true;
+        mLoadingRefresh = refresh;
+        mFailed = false;
+        final int generation = ++mGeneration;
+        final K key = mNextKey;
+        mFuture = mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                Page<K, T> page = null;
+                Exception error = null;
+                try {
+                    page = mSource.loadPage(key);
+                } catch (Exception e) {
+                    error = e;
+                }
+                final Page<K, T> result = page;
+                final Exception failure = error;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration) {
+                            //cancelled or superseded by a refresh
+                            return;
+                        }
+                        if (failure != null) {
+                            onLoadFailed(failure);
+                        } else {
+                            onPageLoaded(result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageLoaded(Page<K, T> page) {
+        boolean refresh = mLoadingRefresh;
+        mFuture = null;
+        mLoading = false;
+        mRetryCount = 0;
+        mNextKey = page.nextKey;
+        mHasMore = page.nextKey != null;
+        mCallback.onPageLoaded(page.items, refresh, mHasMore);
+        finishLoading(refresh, true);
+    }
+
+    private void onLoadFailed(Exception error) {
+        mFuture = null;
+        if (mRetryCount < mMaxRetries) {
+            long delay = RETRY_BASE_DELAY << mRetryCount;
+            mRetryCount++;
+            Log.w(LOG_TAG, "Failed to load page, retry in " + delay + "ms", error);
+            mMainHandler.postDelayed(mRetryRunnable, delay);
+            return;
+        }
+        boolean refresh = mLoadingRefresh;
+        mLoading = false;
+        mFailed = true;
+        mRetryCount = 0;
+        mCallback.onLoadFailed(error, refresh);
+        finishLoading(refresh, false);
+    }
+
+    private void finishLoading(boolean refresh, boolean succeeded) {
+        if (!refresh) {
+            if (mFooterHandler != null) {
+                mFooterHandler.onRefreshCompleted();
+            }
+            if (mRefreshLayout != null && mRefreshLayout.isLoadingMore()) {
+                mRefreshLayout.setLoadMoreCompleted();
+            }
+        } else if (mRefreshLayout != null && mRefreshLayout.isRefreshing()) {
+            mRefreshLayout.setRefreshCompleted(succeeded);
+        }
+    }
+
+    private final Runnable mRetryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            load(mLoadingRefresh);
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener mScrollListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            if (mRefreshLayout != null && !mRefreshLayout.isRefreshing() && !mRefreshLayout.isPullUpEnabled()
+                && !mRefreshLayout.canChildScrollDown()) {
+                loadMore();
+            }
+        }
+    };
+
+    private static synchronized ExecutorService getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            sDefaultExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private int mCount;
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "JRefreshPaging #" + ++mCount);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return sDefaultExecutor;
+    }
+
+    public interface PageSource<K, T> {
+        /**
+         * Load the page of {@code key}, called on a background thread.
+         */
+        Page<K, T> loadPage(K key) throws Exception;
+    }
+
+    public static class Page<K, T> {
+        public final List<T> items;
+        /**
+         * Key of the following page, null if this is the last page.
+         */
+        public final K nextKey;
+
+        public Page(List<T> items, K nextKey) {
+            this.items = items == null ? Collections.<T>emptyList() : items;
+            this.nextKey = nextKey;
+        }
+    }
+
+    public interface Callback<T> {
+        /**
+         * @param items   items of the loaded page
+         * @param refresh whether this is the first page of a refresh, which replaces the old items
+         * @param hasMore whether there are more pages
+         */
+        void onPageLoaded(List<T> items, boolean refresh, boolean hasMore);
+
+        void onLoadFailed(Throwable error, boolean refresh);
+    }
+}
@@ -0,0 +1,270 @@
+package jy.refresh;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Debug;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the per gesture cost of a {@link JRefreshLayout} against budgets while developing custom
+ * headers: layout passes and header text changes / layout requests per pull, allocations per
+ * touch event and frame time of the offset animations. Exceeded budgets are logged, or thrown
+ * with {@link #setThrowOnViolation(boolean)}, and a small overlay shows the live numbers.
+ * <p>
+ * Only used by debuggable apps, see {@link JRefreshLayout#setPerformanceMonitor(PerformanceMonitor)}.
+ * <p>
+ * Allocations are counted with {@link Debug#startAllocCounting()}, deprecated since API 23: it may
+ * report nothing on some runtimes, and counting slows down every allocation, which also inflates
+ * the measured frame times.
+ */
+public class PerformanceMonitor {
+
+    private static final String LOG_TAG = "JRefreshPerformance";
+
+    //DefaultHeader sets the refresh time text at most once per pull, which formats a date
+    private static final int DEFAULT_MAX_TOUCH_ALLOCATIONS = 512;
+
+    private static final String[] STATE_NAMES = {"idle", "pulling", "ready", "refreshing", "completed", "second stage", "opened"};
+
+    private int mMaxLayoutPasses = 4;
+    private int mMaxTextChanges = 4;
+    private int mMaxLayoutRequests = 2;
+    private int mMaxTouchAllocations = DEFAULT_MAX_TOUCH_ALLOCATIONS;
+    private long mMaxFrameTime = 32;
+    private boolean mThrowOnViolation;
+    private boolean mOverlayEnabled = true;
+
+    private boolean mInGesture;
+    private int mLayoutPasses;
+    private int mTextChanges;
+    private int mLayoutRequests;
+    private int mTouchAllocations;
+    private boolean mLayoutRequestedBefore;
+    private long mLastFrameTime;
+    private long mFrameTime;
+    private long mWorstFrameTime;
+    private final List<TextView> mWatchedTextViews = new ArrayList<>();
+    private final Paint mOverlayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mOverlayBackgroundPaint = new Paint();
+    private final StringBuilder mOverlayText = new StringBuilder();
+
+    public PerformanceMonitor() {
+        mOverlayPaint.setColor(Color.WHITE);
+        mOverlayBackgroundPaint.setColor(0x99000000);
+    }
+
+    public void setMaxLayoutPasses(int maxLayoutPasses) {
+        mMaxLayoutPasses = maxLayoutPasses;
+    }
+
+    /**
+     * @param maxTextChanges the maximum text changes of the header's TextViews per pull
+     */
+    public void setMaxTextChanges(int maxTextChanges) {
+        mMaxTextChanges = maxTextChanges;
+    }
+
+    /**
+     * @param maxLayoutRequests the maximum layout requests made by the header's callbacks per pull
+     */
+    public void setMaxLayoutRequests(int maxLayoutRequests) {
+        mMaxLayoutRequests = maxLayoutRequests;
+    }
+
+    /**
+     * @param maxTouchAllocations the maximum objects allocated by a single onTouchEvent, checked
+     *                            once per pull against its most allocating event
+     */
+    public void setMaxTouchAllocations(int maxTouchAllocations) {
+        mMaxTouchAllocations = maxTouchAllocations;
+    }
+
+    /**
+     * @param maxFrameTime the maximum time in ms between two frames of an offset animation
+     */
+    public void setMaxFrameTime(long maxFrameTime) {
+        mMaxFrameTime = maxFrameTime;
+    }
+
+    public void setThrowOnViolation(boolean throwOnViolation) {
+        mThrowOnViolation = throwOnViolation;
+    }
+
+    public void setOverlayEnabled(boolean overlayEnabled) {
+        mOverlayEnabled = overlayEnabled;
+    }
+
+    void watchHandlerViews(View header, View footer) {
+        unwatchHandlerViews();
+        watchTextViews(header);
+        watchTextViews(footer);
+    }
+
+    void unwatchHandlerViews() {
+        for (int i = 0; i < mWatchedTextViews.size(); i++) {
+            mWatchedTextViews.get(i).removeTextChangedListener(mTextWatcher);
+        }
+        mWatchedTextViews.clear();
+    }
+
+    private void watchTextViews(View view) {
+        if (view instanceof TextView) {
+            ((TextView) view).addTextChangedListener(mTextWatcher);
+            mWatchedTextViews.add((TextView) view);
+        } else if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                watchTextViews(group.getChildAt(i));
+            }
+        }
+    }
+
+    private final TextWatcher mTextWatcher = new TextWatcher() {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            if (mInGesture) {
+                mTextChanges++;
+            }
+        }
+    };
+
+    void onGestureStart() {
+        if (mInGesture) {
+            return;
+        }
+        mInGesture = true;
+        mLayoutPasses = 0;
+        mTextChanges = 0;
+        mLayoutRequests = 0;
+        mTouchAllocations = 0;
+    }
+
+    void onGestureEnd() {
+        if (!mInGesture) {
+            return;
+        }
+        mInGesture = false;
+        if (mLayoutPasses > mMaxLayoutPasses) {
+            onViolation("layout passes per pull", mLayoutPasses, mMaxLayoutPasses);
+        }
+        if (mTextChanges > mMaxTextChanges) {
+            onViolation("header text changes per pull", mTextChanges, mMaxTextChanges);
+        }
+        if (mLayoutRequests > mMaxLayoutRequests) {
+            onViolation("header layout requests per pull", mLayoutRequests, mMaxLayoutRequests);
+        }
+        if (mTouchAllocations > mMaxTouchAllocations) {
+            onViolation("allocations in onTouchEvent", mTouchAllocations, mMaxTouchAllocations);
+        }
+    }
+
+    void onLayoutPass() {
+        if (mInGesture) {
+            mLayoutPasses++;
+        }
+    }
+
+    void beforeHandlerCallback(View handlerView) {
+        mLayoutRequestedBefore = handlerView != null && handlerView.isLayoutRequested();
+    }
+
+    void afterHandlerCallback(View handlerView) {
+        if (mInGesture && handlerView != null && !mLayoutRequestedBefore && handlerView.isLayoutRequested()) {
+            mLayoutRequests++;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    void onTouchEventStart() {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+    }
+
+    @SuppressWarnings("deprecation")
+    void onTouchEventEnd() {
+        int allocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+        if (mInGesture) {
+            //reported once the pull ends, not for every move
+            mTouchAllocations = Math.max(mTouchAllocations, allocations);
+        }
+    }
+
+    /**
+     * Called on every draw of the layout, measures the frame time while an offset animation runs.
+     */
+    void onDraw(JRefreshLayout layout, Canvas canvas, int state, int offset, boolean animating) {
+        long now = System.nanoTime() / 1000000;
+        if (animating) {
+            if (mLastFrameTime > 0) {
+                mFrameTime = now - mLastFrameTime;
+                mWorstFrameTime = Math.max(mWorstFrameTime, mFrameTime);
+            }
+            mLastFrameTime = now;
+        } else if (mLastFrameTime > 0) {
+            //the animation ended, report its worst frame once
+            mLastFrameTime = 0;
+            if (mWorstFrameTime > mMaxFrameTime) {
+                onViolation("frame time (ms) of the offset animation", mWorstFrameTime, mMaxFrameTime);
+            }
+            mWorstFrameTime = 0;
+        }
+        if (mOverlayEnabled) {
+            drawOverlay(layout, canvas, state, offset);
+        }
+    }
+
+    private void drawOverlay(JRefreshLayout layout, Canvas canvas, int state, int offset) {
+        float density = layout.getResources().getDisplayMetrics().density;
+        mOverlayPaint.setTextSize(10 * density);
+        float lineHeight = mOverlayPaint.getFontSpacing();
+        float padding = 4 * density;
+        float left = layout.getWidth() - layout.getPaddingRight() - 140 * density;
+        float top = layout.getPaddingTop();
+        canvas.drawRect(left, top, left + 140 * density, top + lineHeight * 3 + padding * 2, mOverlayBackgroundPaint);
+        float x = left + padding;
+        float y = top + padding - mOverlayPaint.ascent();
+
+        mOverlayText.setLength(0);
+        mOverlayText.append(state >= 101 && state <= 107 ? STATE_NAMES[state - 101] : "?")
+            .append(" offset ").append(offset);
+        canvas.drawText(mOverlayText, 0, mOverlayText.length(), x, y, mOverlayPaint);
+        y += lineHeight;
+
+        mOverlayText.setLength(0);
+        mOverlayText.append("frame ").append(mFrameTime).append("ms alloc ").append(mTouchAllocations);
+        canvas.drawText(mOverlayText, 0, mOverlayText.length(), x, y, mOverlayPaint);
+        y += lineHeight;
+
+        mOverlayText.setLength(0);
+        mOverlayText.append("layout ").append(mLayoutPasses)
+            .append(" text ").append(mTextChanges)
+            .append(" req ").append(mLayoutRequests);
+        canvas.drawText(mOverlayText, 0, mOverlayText.length(), x, y, mOverlayPaint);
+    }
+
+    private void onViolation(String budget, long value, long max) {
+        String message = "Exceeded " + budget + ": " + value + " > " + max;
+        if (mThrowOnViolation) {
+            throw new IllegalStateException(message);
+        }
+        Log.w(LOG_TAG, message);
+    }
+}
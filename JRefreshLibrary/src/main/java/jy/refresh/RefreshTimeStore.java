@@ -0,0 +1,148 @@
+package jy.refresh;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persists the last refresh time (and outcome) of each refresh layout.
+ * Reads and writes run on a background thread, writes are coalesced so
+ * that at most one disk write happens per {@link #WRITE_INTERVAL}.
+ */
+public class RefreshTimeStore {
+
+    private static final String PREFS_NAME = "jrefresh_refresh_time";
+
+    private static final String SUFFIX_TIME = "_time";
+
+    private static final String SUFFIX_SUCCEEDED = "_succeeded";
+
+    private static final long WRITE_INTERVAL = 1000;
+
+    private static RefreshTimeStore sInstance;
+
+    private final Context mContext;
+    private final Handler mWorkHandler;
+    private final Handler mMainHandler;
+    private SharedPreferences mPreferences;
+    // guarded by this
+    private final Map<String, Record> mCache = new HashMap<>();
+    private final Map<String, Record> mPendingWrites = new HashMap<>();
+    private boolean mFlushScheduled;
+
+    public static synchronized RefreshTimeStore get(Context context) {
+        if (sInstance == null) {
+            sInstance = new RefreshTimeStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RefreshTimeStore(Context context) {
+        mContext = context;
+        mWorkHandler = BackgroundThread.getHandler();
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Load the stored record off the main thread, the listener is called on the main thread.
+     */
+    public void load(final String key, final OnLoadedListener listener) {
+        synchronized (this) {
+            final Record cached = mCache.get(key);
+            if (cached != null) {
+                dispatchLoaded(listener, cached);
+                return;
+            }
+        }
+        mWorkHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Record record;
+                synchronized (RefreshTimeStore.this) {
+                    record = mCache.get(key);
+                }
+                if (record == null) {
+                    SharedPreferences prefs = getPreferences();
+                    record = new Record(prefs.getLong(key + SUFFIX_TIME, 0),
+                        prefs.getBoolean(key + SUFFIX_SUCCEEDED, true));
+                    synchronized (RefreshTimeStore.this) {
+                        //a save() may have raced with the read, keep the newer value
+                        Record current = mCache.get(key);
+                        if (current == null) {
+                            mCache.put(key, record);
+                        } else {
+                            record = current;
+                        }
+                    }
+                }
+                dispatchLoaded(listener, record);
+            }
+        });
+    }
+
+    public void save(String key, long lastRefreshTime, boolean succeeded) {
+        Record record = new Record(lastRefreshTime, succeeded);
+        synchronized (this) {
+            mCache.put(key, record);
+            mPendingWrites.put(key, record);
+            if (mFlushScheduled) {
+                return;
+            }
+            mFlushScheduled = true;
+        }
+        mWorkHandler.postDelayed(mFlushRunnable, WRITE_INTERVAL);
+    }
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Map<String, Record> writes;
+            synchronized (RefreshTimeStore.this) {
+                writes = new HashMap<>(mPendingWrites);
+                mPendingWrites.clear();
+                mFlushScheduled = false;
+            }
+            SharedPreferences.Editor editor = getPreferences().edit();
+            for (Map.Entry<String, Record> entry : writes.entrySet()) {
+                editor.putLong(entry.getKey() + SUFFIX_TIME, entry.getValue().lastRefreshTime);
+                editor.putBoolean(entry.getKey() + SUFFIX_SUCCEEDED, entry.getValue().succeeded);
+            }
+            editor.commit();
+        }
+    };
+
+    //only called on the work thread
+    private SharedPreferences getPreferences() {
+        if (mPreferences == null) {
+            mPreferences = mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        }
+        return mPreferences;
+    }
+
+    private void dispatchLoaded(final OnLoadedListener listener, final Record record) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onLoaded(record.lastRefreshTime, record.succeeded);
+            }
+        });
+    }
+
+    private static class Record {
+        final long lastRefreshTime;
+        final boolean succeeded;
+
+        Record(long lastRefreshTime, boolean succeeded) {
+            this.lastRefreshTime = lastRefreshTime;
+            this.succeeded = succeeded;
+        }
+    }
+
+    public interface OnLoadedListener {
+        void onLoaded(long lastRefreshTime, boolean succeeded);
+    }
+}
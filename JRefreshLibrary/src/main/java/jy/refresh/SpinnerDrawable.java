@@ -0,0 +1,155 @@
+package jy.refresh;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+
+/**
+ * A lightweight rotating arc. Frames are scheduled through the drawable callback, which the
+ * hosting view aligns with the display frames, and only while the drawable is visible.
+ * Nothing is allocated per frame.
+ */
+public class SpinnerDrawable extends Drawable implements Animatable, Runnable {
+
+    private static final long FRAME_DELAY = 16;
+
+    private static final float DEGREES_PER_MILLISECOND = 360f / 1000;
+
+    private static final float SWEEP_ANGLE = 270;
+
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mArcBounds = new RectF();
+    private final int mSize;
+    private final float mStrokeWidth;
+    private boolean mRunning;
+    private boolean mScheduled;
+    private float mRotation;
+    private long mLastFrameTime;
+
+    /**
+     * @param size        intrinsic width and height in px
+     * @param strokeWidth width of the arc in px
+     */
+    public SpinnerDrawable(int size, float strokeWidth, int color) {
+        mSize = size;
+        mStrokeWidth = strokeWidth;
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setStrokeCap(Paint.Cap.ROUND);
+        mPaint.setStrokeWidth(strokeWidth);
+        mPaint.setColor(color);
+    }
+
+    @Override
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        scheduleNextFrame();
+    }
+
+    @Override
+    public void stop() {
+        mRunning = false;
+        unscheduleNextFrame();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Frames are only scheduled while visible, hosts hide the drawable to pause it.
+     */
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        if (visible) {
+            scheduleNextFrame();
+        } else {
+            unscheduleNextFrame();
+        }
+        return changed;
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+        long now = SystemClock.uptimeMillis();
+        mRotation = (mRotation + (now - mLastFrameTime) * DEGREES_PER_MILLISECOND) % 360;
+        mLastFrameTime = now;
+        invalidateSelf();
+        scheduleNextFrame();
+    }
+
+    private void scheduleNextFrame() {
+        if (!mRunning || mScheduled || !isVisible()) {
+            return;
+        }
+        mScheduled = true;
+        long now = SystemClock.uptimeMillis();
+        if (mLastFrameTime < now - FRAME_DELAY) {
+            //resuming, do not jump over the paused time
+            mLastFrameTime = now;
+        }
+        scheduleSelf(this, now + FRAME_DELAY);
+    }
+
+    private void unscheduleNextFrame() {
+        if (mScheduled) {
+            mScheduled = false;
+            unscheduleSelf(this);
+        }
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        float size = Math.min(bounds.width(), bounds.height());
+        float left = bounds.left + (bounds.width() - size) / 2;
+        float top = bounds.top + (bounds.height() - size) / 2;
+        mArcBounds.set(left, top, left + size, top + size);
+        mArcBounds.inset(mStrokeWidth / 2, mStrokeWidth / 2);
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        int saveCount = canvas.save();
+        canvas.rotate(mRotation, mArcBounds.centerX(), mArcBounds.centerY());
+        canvas.drawArc(mArcBounds, 0, SWEEP_ANGLE, false, mPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mSize;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mSize;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mPaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -0,0 +1,66 @@
+package jy.refresh;
+
+import android.app.Activity;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23)
+public class AutoRefreshSchedulerTest {
+
+    private JRefreshLayout mLayout;
+    private View mContent;
+
+    @Before
+    public void setUp() throws Exception {
+        mContent = new View(Robolectric.setupActivity(Activity.class));
+        mLayout = TestLayouts.create(mContent);
+        //auto refresh needs a visible, focused window
+        TestLayouts.focusWindow(mLayout);
+    }
+
+    @Test
+    public void busyWhenDue_refreshesOnceIdleAgain() throws Exception {
+        //the content is scrolled without pulling when the refresh is due
+        mLayout.onStartNestedScroll(mContent, mContent, ViewCompat.SCROLL_AXIS_VERTICAL);
+        mLayout.onNestedScrollAccepted(mContent, mContent, ViewCompat.SCROLL_AXIS_VERTICAL);
+        mLayout.setAutoRefreshInterval(1000);
+        ShadowLooper.idleMainLooper(1000);
+        assertFalse(mLayout.isRefreshing());
+
+        mLayout.onStopNestedScroll(mContent);
+        ShadowLooper.idleMainLooper(1000);
+        assertTrue(mLayout.isRefreshing());
+    }
+
+    @Test
+    public void refreshingWhenDue_waitsForCompletion() throws Exception {
+        mLayout.startRefreshing();
+        ShadowLooper.idleMainLooper(1000);
+        assertTrue(mLayout.isRefreshing());
+        mLayout.setAutoRefreshInterval(1000);
+        ShadowLooper.idleMainLooper(1000);
+        //not polled while refreshing
+        AutoRefreshScheduler scheduler = ReflectionHelpers.getField(mLayout, "mAutoRefreshScheduler");
+        assertFalse((boolean) ReflectionHelpers.getField(scheduler, "mScheduled"));
+
+        //the completion schedules the next refresh an interval later
+        mLayout.setRefreshCompleted(true);
+        ShadowLooper.idleMainLooper(500);
+        assertFalse(mLayout.isRefreshing());
+        assertTrue((boolean) ReflectionHelpers.getField(scheduler, "mScheduled"));
+        ShadowLooper.idleMainLooper(500);
+        assertTrue(mLayout.isRefreshing());
+    }
+}
@@ -0,0 +1,66 @@
+package jy.refresh;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DragCurveTest {
+
+    private static final float RATE = .45f;
+
+    @Test
+    public void pullDistance_justBelowMaxDragDistance() throws Exception {
+        DragCurve curve = new DragCurve();
+        for (int trigger = 1; trigger <= 200; trigger++) {
+            for (int overPull = 0; overPull <= 200; overPull += 5) {
+                curve.update(trigger, overPull, RATE);
+                float max = curve.getMaxDragDistance();
+                float drag = max;
+                for (int i = 0; i < 16; i++) {
+                    drag = Math.nextDown(drag);
+                    assertWithinMax(curve, trigger, overPull, drag);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pullDistance_afterMaxClamp() throws Exception {
+        //the layout moves the start of the drag to exactly the max drag distance away from the finger
+        DragCurve curve = new DragCurve();
+        curve.update(63, 185, RATE);
+        float max = curve.getMaxDragDistance();
+        for (int motionY = 0; motionY < 4000; motionY++) {
+            float startMotionY = motionY - max;
+            assertWithinMax(curve, 63, 185, motionY - startMotionY);
+        }
+        assertWithinMax(curve, 63, 185, 962.22217f);
+    }
+
+    @Test
+    public void pullDistance_isLinearUpToLinearDistance() throws Exception {
+        DragCurve curve = new DragCurve();
+        curve.update(100, 50, RATE);
+        assertEquals(45f, curve.getPullDistance(100), 0.01f);
+        assertEquals(100f, curve.getPullDistance(100 / RATE), 0.01f);
+        assertEquals(150f, curve.getPullDistance(curve.getMaxDragDistance()), 0f);
+        assertEquals(-RATE, curve.getPullDistance(-1), 0f);
+    }
+
+    @Test
+    public void nonPositiveRate_isRaisedToMinRate() throws Exception {
+        DragCurve curve = new DragCurve();
+        for (float rate : new float[]{0, -1}) {
+            curve.update(100, 50, rate);
+            assertEquals(100 / DragCurve.MIN_RATE + 2 * 50 / DragCurve.MIN_RATE, curve.getMaxDragDistance(), 0.1f);
+            assertEquals(DragCurve.MIN_RATE * 100, curve.getPullDistance(100), 0.01f);
+            assertEquals(150f, curve.getPullDistance(Float.MAX_VALUE), 0f);
+        }
+    }
+
+    private static void assertWithinMax(DragCurve curve, int linear, int overPull, float drag) {
+        float pull = curve.getPullDistance(drag);
+        assertTrue("drag " + drag + " pulled " + pull, pull <= linear + overPull + 0.01f);
+        assertTrue("drag " + drag + " pulled " + pull, pull >= 0);
+    }
+}
@@ -0,0 +1,138 @@
+package jy.refresh;
+
+import android.app.Activity;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23)
+public class PagingLoaderTest {
+
+    private JRefreshLayout mLayout;
+    private PagingLoader<Integer, String> mLoader;
+    private int mFailuresLeft;
+    private int mFailures;
+    private final List<Integer> mLoadedKeys = new ArrayList<>();
+    private final List<String> mItems = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        mLayout = TestLayouts.create(new View(Robolectric.setupActivity(Activity.class)));
+        mLayout.setPullUpEnabled(true);
+
+        PagingLoader.PageSource<Integer, String> source = new PagingLoader.PageSource<Integer, String>() {
+            @Override
+            public PagingLoader.Page<Integer, String> loadPage(Integer key) throws Exception {
+                mLoadedKeys.add(key);
+                if (mFailuresLeft > 0) {
+                    mFailuresLeft--;
+                    throw new Exception("page " + key);
+                }
+                return new PagingLoader.Page<>(Collections.singletonList("item " + key), key + 1);
+            }
+        };
+        PagingLoader.Callback<String> callback = new PagingLoader.Callback<String>() {
+            @Override
+            public void onPageLoaded(List<String> items, boolean refresh, boolean hasMore) {
+                mItems.addAll(items);
+            }
+
+            @Override
+            public void onLoadFailed(Throwable error, boolean refresh) {
+                mFailures++;
+            }
+        };
+        mLoader = new PagingLoader<>(source, 0, callback, new DirectExecutor());
+        mLoader.setMaxRetries(0);
+        mLoader.attach(mLayout);
+    }
+
+    @Test
+    public void pullUpAfterFailure_retriesFailedPage() throws Exception {
+        mFailuresLeft = 1;
+        mLoader.loadMore();
+        ShadowLooper.idleMainLooper();
+        assertEquals(1, mFailures);
+        assertFalse(mLoader.isLoading());
+
+        pullUp();
+        ShadowLooper.idleMainLooper();
+        assertEquals("keys loaded " + mLoadedKeys, 2, mLoadedKeys.size());
+        assertEquals(0, (int) mLoadedKeys.get(1));
+        assertEquals(Collections.singletonList("item 0"), mItems);
+
+        pullUp();
+        ShadowLooper.idleMainLooper();
+        assertEquals(1, (int) mLoadedKeys.get(2));
+    }
+
+    @Test
+    public void cancelWhileRefreshRetries_completesRefresh() throws Exception {
+        mFailuresLeft = 1;
+        mLoader.setMaxRetries(1);
+        mLayout.startRefreshing();
+        ShadowLooper.idleMainLooper();
+        //the first page failed and waits for its retry
+        assertTrue(mLayout.isRefreshing());
+        assertTrue(mLoader.isLoading());
+
+        mLoader.cancel();
+        ShadowLooper.idleMainLooper();
+        assertFalse(mLayout.isRefreshing());
+        assertFalse(mLayout.isLastRefreshSucceeded());
+        assertEquals(1, mLoadedKeys.size());
+    }
+
+    private void pullUp() {
+        //the listener the layout calls once a pull-up is released past the trigger distance
+        JRefreshLayout.OnLoadMoreListener listener = ReflectionHelpers.getField(mLayout, "mLoadMoreListener");
+        listener.onLoadMore();
+    }
+
+    private static class DirectExecutor extends AbstractExecutorService {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package jy.refresh;
+
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23)
+public class PerformanceMonitorTest {
+
+    private JRefreshLayout mLayout;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        activity.getApplicationInfo().flags |= ApplicationInfo.FLAG_DEBUGGABLE;
+        mLayout = TestLayouts.create(new View(activity));
+        PerformanceMonitor monitor = new PerformanceMonitor();
+        monitor.setThrowOnViolation(true);
+        mLayout.setPerformanceMonitor(monitor);
+        assertSame(monitor, ReflectionHelpers.getField(mLayout, "mPerformanceMonitor"));
+    }
+
+    @Test
+    public void defaultHeaderPull_staysWithinDefaultBudgets() throws Exception {
+        //a violation throws from finishPull on ACTION_UP
+        long downTime = SystemClock.uptimeMillis();
+        touch(downTime, MotionEvent.ACTION_DOWN, 100);
+        for (int y = 110; y <= 700; y += 10) {
+            touch(downTime, MotionEvent.ACTION_MOVE, y);
+        }
+        assertEquals(JRefreshLayout.STATE_PULL_REFRESH_READY, (int) ReflectionHelpers.getField(mLayout, "mState"));
+        touch(downTime, MotionEvent.ACTION_UP, 700);
+    }
+
+    private void touch(long downTime, int action, int y) {
+        MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, 100, y, 0);
+        assertTrue(mLayout.onTouchEvent(event));
+        event.recycle();
+        //each event is followed by a frame
+        TestLayouts.layoutIfRequested(mLayout);
+    }
+}
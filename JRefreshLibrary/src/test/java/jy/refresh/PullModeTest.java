@@ -0,0 +1,35 @@
+package jy.refresh;
+
+import android.app.Activity;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23)
+public class PullModeTest {
+
+    @Test
+    public void overlay_customHeaderIsDrawnOverContent() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        JRefreshLayout layout = TestLayouts.create(new View(activity));
+        layout.setPullMode(JRefreshLayout.PULL_MODE_OVERLAY);
+        View header = new View(activity);
+        //added at index 0, below the content
+        layout.setHeaderView(header);
+
+        int count = layout.getChildCount();
+        assertEquals(0, layout.indexOfChild(header));
+        assertEquals(layout.indexOfChild(header), layout.getChildDrawingOrder(count, count - 1));
+        //every other child is still drawn once, in its own order
+        for (int i = 0; i < count - 1; i++) {
+            assertEquals(i + 1, layout.getChildDrawingOrder(count, i));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package jy.refresh;
+
+import android.app.Activity;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23)
+public class RefreshCompletedTest {
+
+    private JRefreshLayout mLayout;
+    private int mCompletedCount;
+
+    @Before
+    public void setUp() throws Exception {
+        mLayout = TestLayouts.create(new View(Robolectric.setupActivity(Activity.class)));
+        mLayout.addOnStateChangeListener(new JRefreshLayout.OnStateChangeListener() {
+            @Override
+            public void onStateChanged(int state, int previousState, int offset, float progress) {
+                if (state == JRefreshLayout.STATE_REFRESH_COMPLETED) {
+                    mCompletedCount++;
+                }
+            }
+        });
+        //Robolectric runs every frame of an animation at once unless frames are delayed
+        ShadowLooper.pauseMainLooper();
+        ShadowChoreographer.setPostCallbackDelay(16);
+        mLayout.startRefreshing();
+        ShadowLooper.idleMainLooper(1000);
+        assertTrue(mLayout.isRefreshing());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        //not reset by Robolectric between tests
+        ShadowChoreographer.setPostCallbackDelay(0);
+    }
+
+    @Test
+    public void completedDuringPartialCollapse_completesOnce() throws Exception {
+        mLayout.setPartialRefreshCompleted();
+        ShadowLooper.idleMainLooper(50);
+        //the partial collapse is still running
+        mLayout.setRefreshCompleted(false);
+        ShadowLooper.idleMainLooper(1000);
+        assertEquals(1, mCompletedCount);
+        assertFalse(mLayout.isRefreshing());
+    }
+}
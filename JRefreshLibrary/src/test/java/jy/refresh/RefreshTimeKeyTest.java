@@ -0,0 +1,40 @@
+package jy.refresh;
+
+import android.app.Activity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23)
+public class RefreshTimeKeyTest {
+
+    @Test
+    public void defaultKey_differsBetweenActivitiesSharingAnIdName() throws Exception {
+        String key = getDefaultKey(Robolectric.setupActivity(Activity.class));
+        String otherKey = getDefaultKey(Robolectric.setupActivity(OtherActivity.class));
+        assertEquals(Activity.class.getName() + "/tv_status", key);
+        assertEquals(OtherActivity.class.getName() + "/tv_status", otherKey);
+    }
+
+    @Test
+    public void defaultKey_nullWithoutId() throws Exception {
+        JRefreshLayout layout = new JRefreshLayout(Robolectric.setupActivity(Activity.class));
+        assertNull(ReflectionHelpers.callInstanceMethod(layout, "getRefreshTimeKey"));
+    }
+
+    private static String getDefaultKey(Activity activity) {
+        JRefreshLayout layout = new JRefreshLayout(activity);
+        layout.setId(R.id.tv_status);
+        return ReflectionHelpers.callInstanceMethod(layout, "getRefreshTimeKey");
+    }
+
+    public static class OtherActivity extends Activity {
+    }
+}
@@ -0,0 +1,104 @@
+package jy.refresh;
+
+import android.app.Activity;
+import android.os.Parcelable;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23)
+public class StateChangeListenerTest {
+
+    private JRefreshLayout mLayout;
+    private View mContent;
+    private final List<float[]> mEvents = new ArrayList<>();
+    private final JRefreshLayout.OnStateChangeListener mListener = new JRefreshLayout.OnStateChangeListener() {
+        @Override
+        public void onStateChanged(int state, int previousState, int offset, float progress) {
+            //the content has already been moved to the reported offset
+            mEvents.add(new float[]{state, previousState, offset, progress, mContent.getTop()});
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        mContent = new View(Robolectric.setupActivity(Activity.class));
+        mLayout = TestLayouts.create(mContent);
+        mLayout.addOnStateChangeListener(mListener);
+    }
+
+    private void pull() {
+        mLayout.onStartNestedScroll(mContent, mContent, ViewCompat.SCROLL_AXIS_VERTICAL);
+        mLayout.onNestedScrollAccepted(mContent, mContent, ViewCompat.SCROLL_AXIS_VERTICAL);
+        for (int i = 0; i < 100; i++) {
+            mLayout.onNestedScroll(mContent, 0, 0, 0, -10);
+        }
+    }
+
+    private void assertLastEvent(int state, int previousState) {
+        float[] last = mEvents.get(mEvents.size() - 1);
+        assertEquals(state, (int) last[0]);
+        assertEquals(previousState, (int) last[1]);
+    }
+
+    @Test
+    public void readyTransition_reportsOffsetOfTheSameEvent() throws Exception {
+        pull();
+
+        float[] ready = null;
+        for (float[] event : mEvents) {
+            assertEquals("offset of state " + (int) event[0], event[4], event[2], 0);
+            if (event[0] == JRefreshLayout.STATE_PULLING) {
+                assertTrue("pulling progress " + event[3], event[3] < 1);
+            } else if (event[0] == JRefreshLayout.STATE_PULL_REFRESH_READY && ready == null) {
+                ready = event;
+            }
+        }
+        assertNotNull(ready);
+        assertEquals(JRefreshLayout.STATE_PULLING, (int) ready[1]);
+        assertTrue("ready progress " + ready[3], ready[3] >= 1);
+        assertTrue(ready[2] > 0);
+    }
+
+    @Test
+    public void detachDuringTriggerAnimation_reportsIdle() throws Exception {
+        ShadowLooper.pauseMainLooper();
+        pull();
+        mLayout.onStopNestedScroll(mContent);
+        assertLastEvent(JRefreshLayout.STATE_PULL_REFRESH_READY, JRefreshLayout.STATE_PULLING);
+
+        ((ViewGroup) mLayout.getParent()).removeView(mLayout);
+        assertLastEvent(JRefreshLayout.STATE_IDLE, JRefreshLayout.STATE_PULL_REFRESH_READY);
+    }
+
+    @Test
+    public void restoreWhileRefreshing_reportsRefreshing() throws Exception {
+        mLayout.startRefreshing();
+        ShadowLooper.idleMainLooper(1000);
+        assertTrue(mLayout.isRefreshing());
+        Parcelable state = mLayout.onSaveInstanceState();
+
+        mContent = new View(Robolectric.setupActivity(Activity.class));
+        JRefreshLayout restored = TestLayouts.create(mContent);
+        restored.addOnStateChangeListener(mListener);
+        mEvents.clear();
+        restored.onRestoreInstanceState(state);
+        assertTrue(restored.isRefreshing());
+        assertEquals(1, mEvents.size());
+        assertLastEvent(JRefreshLayout.STATE_PULL_REFRESHING, JRefreshLayout.STATE_IDLE);
+    }
+}
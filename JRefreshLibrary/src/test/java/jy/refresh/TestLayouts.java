@@ -0,0 +1,57 @@
+package jy.refresh;
+
+import android.app.Activity;
+import android.view.View;
+
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+import org.robolectric.util.ReflectionHelpers.ClassParameter;
+
+/**
+ * Builds the {@link JRefreshLayout} the Robolectric tests drive, the way an inflated layout is set up.
+ */
+final class TestLayouts {
+
+    static final int WIDTH = 480;
+    static final int HEIGHT = 800;
+
+    private TestLayouts() {
+    }
+
+    /**
+     * @param content the content view, created with the activity the layout is shown in
+     * @return a layout around {@code content}, set as the content of its activity and laid out
+     */
+    static JRefreshLayout create(View content) {
+        Activity activity = (Activity) content.getContext();
+        JRefreshLayout layout = new JRefreshLayout(activity);
+        layout.addView(content);
+        layout.onFinishInflate();
+        activity.setContentView(layout);
+        layoutIfRequested(layout);
+        return layout;
+    }
+
+    /**
+     * The layout part of a frame, which Robolectric does not run by itself.
+     */
+    static void layoutIfRequested(JRefreshLayout layout) {
+        if (layout.isLayoutRequested() || layout.getWidth() == 0) {
+            layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            layout.layout(0, 0, WIDTH, HEIGHT);
+        }
+    }
+
+    /**
+     * Make the window of {@code view} visible and focused, which Robolectric does not report by itself.
+     */
+    static void focusWindow(View view) {
+        Object viewRoot = ReflectionHelpers.callInstanceMethod(view, "getViewRootImpl");
+        ReflectionHelpers.callInstanceMethod(viewRoot, "dispatchAppVisibility",
+            ClassParameter.from(boolean.class, true));
+        ReflectionHelpers.callInstanceMethod(viewRoot, "windowFocusChanged",
+            ClassParameter.from(boolean.class, true), ClassParameter.from(boolean.class, false));
+        ShadowLooper.idleMainLooper();
+    }
+}
@@ -0,0 +1,407 @@
+package jy.refresh.testing;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.FrameLayout;
+
+import org.robolectric.Robolectric;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+import jy.refresh.IHeaderHandler;
+import jy.refresh.IProgressHeaderHandler;
+
+/**
+ * Drives an {@link IHeaderHandler} through the callback sequences of {@link jy.refresh.JRefreshLayout}
+ * on the JVM (under Robolectric) and reports the cost of each callback: time spent in the callback,
+ * bytes allocated by it, and the invalidations, layout requests and frame time it causes.
+ * <p>
+ * Every iteration runs a pull that refreshes and a pull that is released early. Compare a custom
+ * header against {@link #runDefaultHeader()} to guard its cost in CI:
+ * <pre>
+ * HeaderBenchmark.Report report = HeaderBenchmark.create(new HeaderBenchmark.HeaderFactory() {
+ *     public View createHeader(Activity activity) {
+ *         return new MyHeader(activity);
+ *     }
+ * }).run();
+ * </pre>
+ * Time is only comparable within one run of the JVM; allocations need a HotSpot based JVM and
+ * are reported as -1 elsewhere. Robolectric draws only the background of a view that draws
+ * itself, so the frame time covers layout, pre-draw listeners and drawing the view groups, not
+ * the onDraw of text or images.
+ */
+public class HeaderBenchmark {
+
+    public static final String ON_PULLING = "onPulling";
+    public static final String ON_REFRESH_READY = "onRefreshReady";
+    public static final String ON_REFRESHING = "onRefreshing";
+    public static final String ON_REFRESH_PROGRESS = "onRefreshProgress";
+    public static final String ON_REFRESH_COMPLETED = "onRefreshCompleted";
+
+    private static final String[] CALLBACK_NAMES = {ON_PULLING, ON_REFRESH_READY, ON_REFRESHING,
+        ON_REFRESH_PROGRESS, ON_REFRESH_COMPLETED};
+
+    private static final int PULLING = 0;
+    private static final int REFRESH_READY = 1;
+    private static final int REFRESHING = 2;
+    private static final int REFRESH_PROGRESS = 3;
+    private static final int REFRESH_COMPLETED = 4;
+
+    private static final int DEFAULT_MOVE_EVENTS = 60;
+    private static final int DEFAULT_WARMUP_ITERATIONS = 5;
+    private static final int DEFAULT_ITERATIONS = 20;
+    private static final int PROGRESS_STEPS = 10;
+    private static final int WIDTH = 1080;
+
+    private final IHeaderHandler mHandler;
+    private final HostLayout mHost;
+    private final Canvas mCanvas;
+    private int mMoveEvents = DEFAULT_MOVE_EVENTS;
+    private int mWarmupIterations = DEFAULT_WARMUP_ITERATIONS;
+    private int mIterations = DEFAULT_ITERATIONS;
+    private Report mReport;
+
+    /**
+     * @param activity an activity created by Robolectric, the header is set as its content
+     * @param header   the header view, which must implement {@link IHeaderHandler}
+     */
+    public HeaderBenchmark(Activity activity, View header) {
+        if (!(header instanceof IHeaderHandler)) {
+            throw new IllegalArgumentException("The header must implement IHeaderHandler");
+        }
+        mHandler = (IHeaderHandler) header;
+        mHost = new HostLayout(activity);
+        mHost.addView(header, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT));
+        activity.setContentView(mHost);
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, WIDTH, Bitmap.Config.ARGB_8888));
+    }
+
+    /**
+     * Create the benchmark of a header in a new Robolectric activity.
+     */
+    public static HeaderBenchmark create(HeaderFactory factory) {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        return new HeaderBenchmark(activity, factory.createHeader(activity));
+    }
+
+    /**
+     * The baseline to compare custom headers with.
+     */
+    public static Report runDefaultHeader() {
+        return create(new HeaderFactory() {
+            @Override
+            public View createHeader(Activity activity) {
+                return new jy.refresh.DefaultHeader(activity);
+            }
+        }).run();
+    }
+
+    /**
+     * @param moveEvents move events of a pull up to the trigger distance
+     */
+    public void setMoveEvents(int moveEvents) {
+        mMoveEvents = Math.max(2, moveEvents);
+    }
+
+    public void setWarmupIterations(int warmupIterations) {
+        mWarmupIterations = Math.max(0, warmupIterations);
+    }
+
+    public void setIterations(int iterations) {
+        mIterations = Math.max(1, iterations);
+    }
+
+    public Report run() {
+        AllocationProbe.calibrate();
+        //let the JIT compile the header before measuring
+        mReport = new Report();
+        for (int i = 0; i < mWarmupIterations; i++) {
+            runIteration();
+        }
+        mReport = new Report();
+        for (int i = 0; i < mIterations; i++) {
+            runIteration();
+        }
+        return mReport;
+    }
+
+    private void runIteration() {
+        frame();
+        pullAndRefresh();
+        pullAndCancel();
+    }
+
+    //the callbacks of JRefreshLayout for a pull released beyond the trigger distance
+    private void pullAndRefresh() {
+        for (int i = 1; i < mMoveEvents; i++) {
+            call(PULLING, i * 100 / mMoveEvents);
+        }
+        call(PULLING, 100);
+        call(REFRESH_READY, 0);
+        call(REFRESHING, 0);
+        if (mHandler instanceof IProgressHeaderHandler) {
+            for (int i = 1; i <= PROGRESS_STEPS; i++) {
+                call(REFRESH_PROGRESS, i * 100 / PROGRESS_STEPS);
+            }
+        }
+        call(REFRESH_COMPLETED, 0);
+    }
+
+    //the callbacks for a pull released halfway, which scrolls back without refreshing
+    private void pullAndCancel() {
+        int half = mMoveEvents / 2;
+        for (int i = 1; i <= half; i++) {
+            call(PULLING, i * 100 / mMoveEvents);
+        }
+        for (int i = half - 1; i > 0; i--) {
+            call(PULLING, i * 100 / mMoveEvents);
+        }
+    }
+
+    private void call(int callback, int argument) {
+        mHost.resetCounters();
+        long allocated = AllocationProbe.allocatedBytes();
+        long start = System.nanoTime();
+        switch (callback) {
+            case PULLING:
+                mHandler.onPulling(argument);
+                break;
+            case REFRESH_READY:
+                mHandler.onRefreshReady();
+                break;
+            case REFRESHING:
+                mHandler.onRefreshing();
+                break;
+            case REFRESH_PROGRESS:
+                ((IProgressHeaderHandler) mHandler).onRefreshProgress(argument / 100f);
+                break;
+            case REFRESH_COMPLETED:
+                mHandler.onRefreshCompleted();
+                break;
+            default:
+                break;
+        }
+        long time = System.nanoTime() - start;
+        long bytes = AllocationProbe.since(allocated);
+        int invalidations = mHost.mInvalidations;
+        int layoutRequests = mHost.mLayoutRequests;
+        long frameStart = System.nanoTime();
+        frame();
+        long frameTime = System.nanoTime() - frameStart;
+        mReport.mStats[callback].add(time, bytes, invalidations, layoutRequests, frameTime);
+    }
+
+    //what the next frame does after a callback: layout if requested, pre-draw listeners, then draw
+    private void frame() {
+        if (mHost.isLayoutRequested() || mHost.getWidth() == 0) {
+            mHost.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.AT_MOST));
+            mHost.layout(0, 0, mHost.getMeasuredWidth(), mHost.getMeasuredHeight());
+        }
+        if (!mHost.getViewTreeObserver().dispatchOnPreDraw()) {
+            mHost.drawChildren(mCanvas);
+        }
+    }
+
+    public interface HeaderFactory {
+        View createHeader(Activity activity);
+    }
+
+    public static class Report {
+        private final CallbackStats[] mStats = new CallbackStats[CALLBACK_NAMES.length];
+
+        Report() {
+            for (int i = 0; i < mStats.length; i++) {
+                mStats[i] = new CallbackStats(CALLBACK_NAMES[i]);
+            }
+        }
+
+        /**
+         * @param callback one of the ON_* names
+         * @return the stats of the callback, with a count of 0 if it was never called
+         */
+        public CallbackStats get(String callback) {
+            for (CallbackStats stats : mStats) {
+                if (stats.name.equals(callback)) {
+                    return stats;
+                }
+            }
+            throw new IllegalArgumentException("Unknown callback " + callback);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(Locale.US,
+                "%-20s %8s %12s %12s %12s %12s %12s%n", "callback", "calls", "mean ns", "max ns",
+                "bytes/call", "inval/call", "layout/call"));
+            for (CallbackStats stats : mStats) {
+                if (stats.count > 0) {
+                    sb.append(stats).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    public static class CallbackStats {
+        public final String name;
+        public int count;
+        public long totalTime;
+        public long maxTime;
+        // -1 when allocations can not be measured on this JVM
+        public long totalAllocatedBytes;
+        public int invalidations;
+        public int layoutRequests;
+        public long totalFrameTime;
+
+        CallbackStats(String name) {
+            this.name = name;
+        }
+
+        void add(long time, long bytes, int invalidations, int layoutRequests, long frameTime) {
+            count++;
+            totalTime += time;
+            maxTime = Math.max(maxTime, time);
+            totalAllocatedBytes = bytes < 0 || totalAllocatedBytes < 0 ? -1 : totalAllocatedBytes + bytes;
+            this.invalidations += invalidations;
+            this.layoutRequests += layoutRequests;
+            totalFrameTime += frameTime;
+        }
+
+        public long getMeanTime() {
+            return count == 0 ? 0 : totalTime / count;
+        }
+
+        public long getMeanAllocatedBytes() {
+            return count == 0 || totalAllocatedBytes < 0 ? totalAllocatedBytes : totalAllocatedBytes / count;
+        }
+
+        public float getInvalidationsPerCall() {
+            return count == 0 ? 0 : (float) invalidations / count;
+        }
+
+        public float getLayoutRequestsPerCall() {
+            return count == 0 ? 0 : (float) layoutRequests / count;
+        }
+
+        /**
+         * @return the mean time of the layout and draw following the callback
+         */
+        public long getMeanFrameTime() {
+            return count == 0 ? 0 : totalFrameTime / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-20s %8d %12d %12d %12d %12.2f %12.2f", name, count,
+                getMeanTime(), maxTime, getMeanAllocatedBytes(), getInvalidationsPerCall(),
+                getLayoutRequestsPerCall());
+        }
+    }
+
+    //counts the invalidations and layout requests coming from the header
+    private static class HostLayout extends FrameLayout {
+        int mInvalidations;
+        int mLayoutRequests;
+
+        HostLayout(Activity activity) {
+            super(activity);
+        }
+
+        void resetCounters() {
+            mInvalidations = 0;
+            mLayoutRequests = 0;
+        }
+
+        //Robolectric replaces View.draw(Canvas) with drawing the background, which would leave the
+        //header undrawn and stop its invalidations from reaching this layout
+        void drawChildren(Canvas canvas) {
+            dispatchDraw(canvas);
+        }
+
+        @Override
+        public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+            mInvalidations++;
+            return super.invalidateChildInParent(location, dirty);
+        }
+
+        @Override
+        public void requestLayout() {
+            if (!isLayoutRequested()) {
+                mLayoutRequests++;
+            }
+            super.requestLayout();
+        }
+    }
+
+    /**
+     * Bytes allocated by the current thread, through com.sun.management.ThreadMXBean. The
+     * management classes are not in android.jar, so they are looked up reflectively and the cost
+     * of the lookup itself is subtracted.
+     */
+    private static class AllocationProbe {
+        private static Object sBean;
+        private static Method sMethod;
+        private static boolean sInitialized;
+        private static long sOverhead;
+
+        static void calibrate() {
+            init();
+            if (sMethod == null) {
+                return;
+            }
+            long overhead = Long.MAX_VALUE;
+            for (int i = 0; i < 100; i++) {
+                long start = rawAllocatedBytes();
+                overhead = Math.min(overhead, rawAllocatedBytes() - start);
+            }
+            sOverhead = overhead;
+        }
+
+        static long allocatedBytes() {
+            return sMethod == null ? -1 : rawAllocatedBytes();
+        }
+
+        static long since(long start) {
+            if (start < 0) {
+                return -1;
+            }
+            return Math.max(0, rawAllocatedBytes() - start - sOverhead);
+        }
+
+        private static void init() {
+            if (sInitialized) {
+                return;
+            }
+            sInitialized = true;
+            try {
+                Object bean = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean").invoke(null);
+                Method method = Class.forName("com.sun.management.ThreadMXBean")
+                    .getMethod("getThreadAllocatedBytes", long.class);
+                method.setAccessible(true);
+                if (Class.forName("com.sun.management.ThreadMXBean").isInstance(bean)) {
+                    sBean = bean;
+                    sMethod = method;
+                }
+            } catch (Exception e) {
+                //not a HotSpot based JVM
+            }
+        }
+
+        private static long rawAllocatedBytes() {
+            try {
+                return (Long) sMethod.invoke(sBean, Thread.currentThread().getId());
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package jy.refresh.testing;
+
+import android.app.Activity;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import jy.refresh.IHeaderHandler;
+
+import static org.junit.Assert.*;
+
+/**
+ * Baseline of {@link jy.refresh.DefaultHeader}, and an example of guarding a header against it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 23)
+public class DefaultHeaderBaselineTest {
+
+    @Test
+    public void defaultHeader_receivesEveryCallback() throws Exception {
+        HeaderBenchmark.Report report = HeaderBenchmark.runDefaultHeader();
+        String message = "DefaultHeader\n" + report;
+        assertTrue(message, report.get(HeaderBenchmark.ON_PULLING).count > 0);
+        assertTrue(message, report.get(HeaderBenchmark.ON_REFRESH_READY).count > 0);
+        assertTrue(message, report.get(HeaderBenchmark.ON_REFRESHING).count > 0);
+        assertTrue(message, report.get(HeaderBenchmark.ON_REFRESH_PROGRESS).count > 0);
+        assertTrue(message, report.get(HeaderBenchmark.ON_REFRESH_COMPLETED).count > 0);
+    }
+
+    @Test
+    public void emptyHeader_isNotMoreExpensiveThanDefaultHeader() throws Exception {
+        HeaderBenchmark.Report baseline = HeaderBenchmark.runDefaultHeader();
+        HeaderBenchmark.Report report = HeaderBenchmark.create(new HeaderBenchmark.HeaderFactory() {
+            @Override
+            public View createHeader(Activity activity) {
+                return new EmptyHeader(activity);
+            }
+        }).run();
+        String message = "EmptyHeader\n" + report + "DefaultHeader\n" + baseline;
+        HeaderBenchmark.CallbackStats pulling = report.get(HeaderBenchmark.ON_PULLING);
+        HeaderBenchmark.CallbackStats baselinePulling = baseline.get(HeaderBenchmark.ON_PULLING);
+        assertTrue(message, pulling.getInvalidationsPerCall() <= baselinePulling.getInvalidationsPerCall());
+        assertTrue(message, pulling.getLayoutRequestsPerCall() <= baselinePulling.getLayoutRequestsPerCall());
+        if (pulling.getMeanAllocatedBytes() >= 0) {
+            assertTrue(message, pulling.getMeanAllocatedBytes() <= baselinePulling.getMeanAllocatedBytes());
+        }
+    }
+
+    @Test
+    public void invalidatingHeader_countsOneInvalidationPerCall() throws Exception {
+        HeaderBenchmark.Report report = HeaderBenchmark.create(new HeaderBenchmark.HeaderFactory() {
+            @Override
+            public View createHeader(Activity activity) {
+                return new EmptyHeader(activity) {
+                    @Override
+                    public void onPulling(int percent) {
+                        invalidate();
+                    }
+                };
+            }
+        }).run();
+        assertEquals("InvalidatingHeader\n" + report, 1f,
+            report.get(HeaderBenchmark.ON_PULLING).getInvalidationsPerCall(), 0);
+    }
+
+    private static class EmptyHeader extends View implements IHeaderHandler {
+
+        EmptyHeader(Activity activity) {
+            super(activity);
+        }
+
+        @Override
+        public void onPulling(int percent) {
+        }
+
+        @Override
+        public void onRefreshReady() {
+        }
+
+        @Override
+        public void onRefreshing() {
+        }
+
+        @Override
+        public void onRefreshCompleted() {
+        }
+    }
+}